@@ -0,0 +1,95 @@
+package com.example.wellbeing.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    // Perfil virtual-threads (JDK 21): troca os pools por threads virtuais com limite de concorrência
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private static final int IMAGE_CONCURRENCY = 2;
+
+    /**
+     * Pool pequeno e limitado para processamento de imagens: decodificar uma foto
+     * grande ocupa bastante heap, então poucas em paralelo. Com a fila cheia a
+     * própria thread que publicou executa a tarefa, sem descartar trabalho.
+     */
+    @Bean(name = "imageExecutor")
+    public Executor imageExecutor() {
+        if (virtualThreads) {
+            // Acima do limite quem publica espera, como no CallerRuns do pool
+            return virtualThreadExecutor("image-", IMAGE_CONCURRENCY);
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(IMAGE_CONCURRENCY);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("image-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Exportações de dados em segundo plano: cada job segura uma conexão do
+     * banco enquanto grava o ZIP em disco, então poucos ao mesmo tempo e fila
+     * limitada. Com a fila cheia o pedido é recusado (sem CallerRuns, que
+     * devolveria o trabalho pesado para a thread da requisição). Com threads
+     * virtuais o limite de jobs rodando e na fila fica no ExportJobService, e o
+     * limite do executor nunca chega a bloquear quem enfileira.
+     */
+    @Bean(name = "exportExecutor")
+    public Executor exportExecutor(@Value("${app.export.max-concurrent-jobs:2}") int maxConcurrentJobs,
+                                   @Value("${app.export.queue-capacity:20}") int queueCapacity) {
+        if (virtualThreads) {
+            return virtualThreadExecutor("export-", maxConcurrentJobs + queueCapacity);
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentJobs);
+        executor.setMaxPoolSize(maxConcurrentJobs);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("export-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * BCrypt do login e do registro fora das threads de requisição: trabalho
+     * de CPU puro, então threads de plataforma e no máximo
+     * app.security.password-hash.threads em paralelo. Uma rajada de logins
+     * espera na fila (limitada) em vez de ocupar todos os núcleos; com a fila
+     * cheia o login é recusado.
+     */
+    @Bean(name = "passwordHashExecutor")
+    public ThreadPoolTaskExecutor passwordHashExecutor(@Value("${app.security.password-hash.threads:2}") int threads,
+                                                       @Value("${app.security.password-hash.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hash-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    // Uma thread virtual por tarefa; setVirtualThreads só funciona em JDK 21+
+    private static Executor virtualThreadExecutor(String threadNamePrefix, int concurrencyLimit) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(concurrencyLimit);
+        return executor;
+    }
+}
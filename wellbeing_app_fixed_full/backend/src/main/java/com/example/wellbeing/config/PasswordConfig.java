@@ -1,5 +1,6 @@
 package com.example.wellbeing.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -8,8 +9,39 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 @Configuration
 public class PasswordConfig {
 
+    // Abaixo disso o BCrypt fica fraco demais; acima, lento demais para login interativo
+    private static final int MIN_STRENGTH = 10;
+    private static final int MAX_STRENGTH = 16;
+
+    /**
+     * Custo do BCrypt: app.security.bcrypt.strength, ou, com
+     * app.security.bcrypt.target-ms > 0, o maior custo cujo hash nesta máquina
+     * ainda cabe no alvo (medido na subida). Hashes antigos continuam válidos,
+     * pois o custo vai gravado no próprio hash; os de custo menor são refeitos
+     * no próximo login.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${app.security.bcrypt.strength:10}") int strength,
+                                           @Value("${app.security.bcrypt.target-ms:0}") long targetMillis) {
+        int chosen = targetMillis > 0 ? calibrate(targetMillis) : strength;
+        System.out.println("🔐 BCrypt com custo " + chosen);
+        return new BCryptPasswordEncoder(chosen);
+    }
+
+    private static int calibrate(long targetMillis) {
+        String sample = "calibracao-bcrypt";
+        new BCryptPasswordEncoder(MIN_STRENGTH).encode(sample); // aquecimento do JIT
+
+        int chosen = MIN_STRENGTH;
+        for (int strength = MIN_STRENGTH; strength <= MAX_STRENGTH; strength++) {
+            long startedAt = System.nanoTime();
+            new BCryptPasswordEncoder(strength).encode(sample);
+            long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000L;
+            if (elapsedMillis > targetMillis) break;
+            chosen = strength;
+            // Cada ponto de custo dobra o tempo: se o próximo passaria do alvo, nem mede
+            if (elapsedMillis * 2 > targetMillis) break;
+        }
+        return chosen;
     }
 }
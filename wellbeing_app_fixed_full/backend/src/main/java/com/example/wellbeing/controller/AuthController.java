@@ -5,35 +5,43 @@ import com.example.wellbeing.dto.AuthResponse;
 import com.example.wellbeing.dto.RegisterRequest;
 import com.example.wellbeing.model.User;
 import com.example.wellbeing.repository.UserRepository;
+import com.example.wellbeing.security.CustomUserPrincipal;
 import com.example.wellbeing.security.JwtUtil;
+import com.example.wellbeing.security.TokenRevocationCache;
+import com.example.wellbeing.service.DoctorDirectoryChangedEvent;
+import com.example.wellbeing.service.PasswordHashingService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import jakarta.validation.Valid;
+import java.time.Instant;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
 @CrossOrigin(origins = "http://localhost:5173")
 public class AuthController {
 
-    @Autowired
-    private AuthenticationManager authenticationManager;
-
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private TokenRevocationCache revocationCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @PostMapping("/register")
     public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest req) {
         try {
@@ -47,12 +55,12 @@ public class AuthController {
             }
 
             // Define a role baseada no campo doctor ou usa a role fornecida
-            String role = req.getRole() != null ? req.getRole() : (req.isDoctor() ? "DOCTOR" : "PATIENT");
+            String role = req.getRole() != null ? req.getRole().toUpperCase() : (req.isDoctor() ? "DOCTOR" : "PATIENT");
 
             User user = new User();
             user.setUsername(req.getUsername());
             user.setEmail(req.getEmail());
-            user.setPassword(passwordEncoder.encode(req.getPassword()));
+            user.setPassword(passwordHashingService.encode(req.getPassword()));
             user.setFullName(req.getFullName());
             user.setRole(role);
 
@@ -67,8 +75,12 @@ public class AuthController {
             }
 
             userRepository.save(user);
+            if ("DOCTOR".equals(role)) {
+                // ✅ Novo médico no diretório: invalida o cache
+                eventPublisher.publishEvent(new DoctorDirectoryChangedEvent(user.getId()));
+            }
 
-            String token = jwtUtil.generateTokenWithRole(user.getUsername(), role);
+            String token = jwtUtil.generateToken(user);
             System.out.println("Registro bem-sucedido: " + req.getUsername() + " como " + role);
             
             AuthResponse response = new AuthResponse(token);
@@ -79,6 +91,9 @@ public class AuthController {
             
             return ResponseEntity.ok(response);
 
+        } catch (RejectedExecutionException e) {
+            System.out.println("Registro recusado, fila de hash cheia: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("❌ Server busy, try again");
         } catch (Exception e) {
             System.out.println("Erro no registro: " + e.getMessage());
             e.printStackTrace();
@@ -91,32 +106,21 @@ public class AuthController {
         try {
             System.out.println("Tentativa de login - Username: " + req.getUsername() + ", Role esperada: " + req.getRole());
 
-            // ENCONTRAR O USUÁRIO POR USERNAME OU EMAIL
-            String loginIdentifier = req.getUsername();
-            User user = null;
-
-            // Se username foi fornecido, busca por username
-            if (req.getUsername() != null && !req.getUsername().isEmpty()) {
-                Optional<User> userByUsername = userRepository.findByUsername(req.getUsername());
-                if (userByUsername.isPresent()) {
-                    user = userByUsername.get();
-                    loginIdentifier = req.getUsername();
-                }
-            }
-
-            // Se não encontrou por username e email foi fornecido, busca por email
-            if (user == null && req.getEmail() != null && !req.getEmail().isEmpty()) {
-                Optional<User> userByEmail = userRepository.findByEmail(req.getEmail());
-                if (userByEmail.isPresent()) {
-                    user = userByEmail.get();
-                    loginIdentifier = user.getUsername();
-                }
+            // ✅ ENCONTRAR O USUÁRIO POR USERNAME OU EMAIL: uma consulta só
+            String login = hasText(req.getUsername()) ? req.getUsername().trim()
+                    : hasText(req.getEmail()) ? req.getEmail().trim() : null;
+            if (login == null) {
+                return ResponseEntity.status(401).body("❌ User not found");
             }
+            String email = (hasText(req.getEmail()) ? req.getEmail().trim() : login).toLowerCase(Locale.ROOT);
 
-            if (user == null) {
+            Optional<User> userOpt = userRepository.findByLogin(login, email);
+            if (userOpt.isEmpty()) {
                 System.out.println("Usuário não encontrado: " + req.getUsername() + " / " + req.getEmail());
                 return ResponseEntity.status(401).body("❌ User not found");
             }
+            User user = userOpt.get();
+            String loginIdentifier = user.getUsername();
 
             // ✅ VALIDAÇÃO DA ROLE: Verificar se a role do usuário corresponde à role selecionada
             if (req.getRole() != null && !req.getRole().isEmpty()) {
@@ -126,19 +130,19 @@ public class AuthController {
                 }
             }
 
-            // VERIFICAÇÃO DE SENHA
-            if (!passwordEncoder.matches(req.getPassword(), user.getPassword())) {
+            // ✅ VERIFICAÇÃO DE SENHA: um único BCrypt, no pool dedicado (sem reautenticar pelo AuthenticationManager)
+            if (!passwordHashingService.matches(req.getPassword(), user.getPassword())) {
                 System.out.println("Senha incorreta para: " + loginIdentifier);
                 return ResponseEntity.status(401).body("❌ Invalid credentials");
             }
 
-            // AUTENTICAÇÃO COM SPRING SECURITY
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(loginIdentifier, req.getPassword())
-            );
+            // Hash com custo antigo: refaz com o custo atual (só uma vez por usuário)
+            if (passwordHashingService.needsRehash(user.getPassword())) {
+                rehashPassword(user, req.getPassword());
+            }
 
             // GERAÇÃO DO TOKEN
-            String token = jwtUtil.generateTokenWithRole(loginIdentifier, user.getRole());
+            String token = jwtUtil.generateToken(user);
             System.out.println("Login bem-sucedido: " + loginIdentifier + " - Role: " + user.getRole());
 
             AuthResponse response = new AuthResponse(token);
@@ -149,13 +153,57 @@ public class AuthController {
 
             return ResponseEntity.ok(response);
 
-        } catch (BadCredentialsException e) {
-            System.out.println("BadCredentials: " + req.getUsername() + " / " + req.getEmail());
-            return ResponseEntity.status(401).body("❌ Invalid credentials");
+        } catch (RejectedExecutionException e) {
+            System.out.println("Login recusado, fila de verificação cheia: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("❌ Server busy, try again");
         } catch (Exception e) {
             System.out.println("Erro no login: " + e.getMessage());
             e.printStackTrace();
             return ResponseEntity.badRequest().body("❌ Login error: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // ✅ Logout: incrementa a versão de token do usuário, invalidando todos os JWTs já emitidos
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@AuthenticationPrincipal CustomUserPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).body("❌ Not authenticated");
+        }
+
+        Optional<User> userOpt = userRepository.findById(principal.getId());
+        if (userOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        User user = userOpt.get();
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        user.setTokensRevokedAt(Instant.now());
+        userRepository.save(user);
+        revocationCache.revoke(user.getId(), user.getTokenVersion());
+
+        return ResponseEntity.ok().body("Logout realizado com sucesso");
+    }
+
+    // ✅ Métricas do pool de BCrypt (fila, espera e tempo de hash)
+    @GetMapping("/hash-stats")
+    public ResponseEntity<?> getHashStats(@AuthenticationPrincipal CustomUserPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).body("❌ Not authenticated");
+        }
+        return ResponseEntity.ok(passwordHashingService.getStats());
+    }
+
+    // ✅ Rehash é oportunista: com o pool de hash cheio fica para o próximo login, sem recusar quem acertou a senha
+    private void rehashPassword(User user, String rawPassword) {
+        try {
+            user.setPassword(passwordHashingService.encode(rawPassword));
+            userRepository.save(user);
+        } catch (RejectedExecutionException e) {
+            System.out.println("Rehash adiado, fila de hash cheia: " + user.getUsername());
+        }
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
@@ -1,20 +1,33 @@
 package com.example.wellbeing.controller;
 
 import com.example.wellbeing.dto.MessageRequest;
+import com.example.wellbeing.dto.MessageResponse;
 import com.example.wellbeing.model.Chat;
 import com.example.wellbeing.model.Message;
 import com.example.wellbeing.model.User;
 import com.example.wellbeing.repository.ChatRepository;
 import com.example.wellbeing.repository.MessageRepository;
 import com.example.wellbeing.repository.UserRepository;
-import com.example.wellbeing.security.JwtUtil;
+import com.example.wellbeing.repository.projection.ChatInboxView;
+import com.example.wellbeing.security.CustomUserPrincipal;
+import com.example.wellbeing.service.ChatMessageWriter;
+import com.example.wellbeing.service.PresenceRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/chats")
@@ -31,21 +44,24 @@ public class ChatController {
     private UserRepository userRepository;
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private ChatMessageWriter chatMessageWriter;
 
-    private String extractUsernameFromAuth(String authHeader) {
-        String token = authHeader.replace("Bearer ", "");
-        return jwtUtil.extractUsername(token);
+    @Autowired
+    private PresenceRegistry presenceRegistry;
+
+    // ✅ Entidade completa do usuário autenticado (consulta o banco só no modo JWT stateless)
+    private Optional<User> currentUser(CustomUserPrincipal principal) {
+        if (principal == null) return Optional.empty();
+        if (principal.isUserLoaded()) return Optional.of(principal.getUser());
+        return userRepository.findById(principal.getId());
     }
 
     // ✅ ENDPOINT: Iniciar chat com médico
     @PostMapping("/start")
-    public ResponseEntity<?> startChat(@RequestBody StartChatRequest request, @RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> startChat(@RequestBody StartChatRequest request, @AuthenticationPrincipal CustomUserPrincipal principal) {
         try {
-            String username = extractUsernameFromAuth(authHeader);
-            User patient = userRepository.findByUsername(username).orElseThrow();
             
-            if (!"PATIENT".equals(patient.getRole())) {
+            if (!"PATIENT".equals(principal.getRole())) {
                 return ResponseEntity.badRequest().body("Apenas pacientes podem iniciar chats");
             }
             
@@ -56,13 +72,13 @@ public class ChatController {
                 return ResponseEntity.badRequest().body("ID informado não pertence a um médico");
             }
             
-            Optional<Chat> existingChat = chatRepository.findByPatientIdAndDoctorId(patient.getId(), doctor.getId());
+            Optional<Chat> existingChat = chatRepository.findByPatientIdAndDoctorId(principal.getId(), doctor.getId());
             if (existingChat.isPresent()) {
                 return ResponseEntity.ok(existingChat.get());
             }
             
             Chat chat = new Chat();
-            chat.setPatientId(patient.getId());
+            chat.setPatientId(principal.getId());
             chat.setDoctorId(doctor.getId());
             chat.setTitle("Chat com Dr. " + doctor.getFullName());
             chat.setUpdatedAt(Instant.now());
@@ -77,19 +93,17 @@ public class ChatController {
 
     // ✅ ENDPOINT MELHORADO: Buscar informações do chat com foto de perfil
     @GetMapping("/{chatId}/info")
-    public ResponseEntity<?> getChatInfo(@PathVariable Long chatId, @RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getChatInfo(@PathVariable Long chatId, @AuthenticationPrincipal CustomUserPrincipal principal) {
         try {
-            String username = extractUsernameFromAuth(authHeader);
-            User currentUser = userRepository.findByUsername(username).orElseThrow();
 
             Chat chat = chatRepository.findById(chatId).orElseThrow();
             
-            if (!chat.getPatientId().equals(currentUser.getId()) && !chat.getDoctorId().equals(currentUser.getId())) {
+            if (!chat.getPatientId().equals(principal.getId()) && !chat.getDoctorId().equals(principal.getId())) {
                 return ResponseEntity.status(403).body("Acesso negado");
             }
 
             // Buscar informações do outro usuário
-            Long otherUserId = currentUser.getRole().equals("DOCTOR") ? chat.getPatientId() : chat.getDoctorId();
+            Long otherUserId = principal.getRole().equals("DOCTOR") ? chat.getPatientId() : chat.getDoctorId();
             User otherUser = userRepository.findById(otherUserId).orElseThrow();
 
             ChatInfoResponse response = new ChatInfoResponse();
@@ -97,7 +111,7 @@ public class ChatController {
             response.setOtherUserName(otherUser.getFullName());
             response.setOtherUserSpecialization(otherUser.getEspecializacao());
             response.setOtherUserRole(otherUser.getRole());
-            response.setOtherUserProfilePicture(otherUser.getProfilePicture()); // ✅ FOTO DE PERFIL
+            response.setOtherUserProfilePicture(otherUser.getProfilePictureThumbnail()); // ✅ FOTO DE PERFIL
             response.setChatId(chatId);
 
             return ResponseEntity.ok(response);
@@ -107,50 +121,33 @@ public class ChatController {
     }
 
     @GetMapping("")
-    public ResponseEntity<?> listChats(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> listChats(@AuthenticationPrincipal CustomUserPrincipal principal) {
         try {
-            String username = extractUsernameFromAuth(authHeader);
-            User user = userRepository.findByUsername(username).orElseThrow();
 
-            List<Chat> chats;
-            if ("DOCTOR".equals(user.getRole())) {
-                chats = chatRepository.findByDoctorIdOrderByUpdatedAtDesc(user.getId());
+            // ✅ OTIMIZADO: uma única consulta traz chat, participantes e última mensagem
+            List<ChatInboxView> inbox;
+            if ("DOCTOR".equals(principal.getRole())) {
+                inbox = chatRepository.findInboxByDoctorId(principal.getId());
             } else {
-                chats = chatRepository.findByPatientIdOrderByUpdatedAtDesc(user.getId());
+                inbox = chatRepository.findInboxByPatientId(principal.getId());
             }
 
-            // ✅ MELHORADO: Incluir foto de perfil nas respostas
-            List<ChatResponse> chatResponses = chats.stream().map(chat -> {
+            List<ChatResponse> chatResponses = inbox.stream().map(row -> {
                 ChatResponse response = new ChatResponse();
-                response.setId(chat.getId());
-                response.setPatientId(chat.getPatientId());
-                response.setDoctorId(chat.getDoctorId());
-                response.setTitle(chat.getTitle());
-                response.setUpdatedAt(chat.getUpdatedAt());
-                
-                // Buscar informações do paciente
-                if (chat.getPatientId() != null) {
-                    userRepository.findById(chat.getPatientId()).ifPresent(patient -> {
-                        response.setPatientName(patient.getFullName());
-                        response.setPatientProfilePicture(patient.getProfilePicture()); // ✅ FOTO
-                    });
-                }
-                
-                // Buscar informações do médico
-                if (chat.getDoctorId() != null) {
-                    userRepository.findById(chat.getDoctorId()).ifPresent(doctor -> {
-                        response.setDoctorName(doctor.getFullName());
-                        response.setDoctorSpecialization(doctor.getEspecializacao());
-                        response.setDoctorProfilePicture(doctor.getProfilePicture()); // ✅ FOTO
-                    });
-                }
-                
-                // Buscar última mensagem
-                List<Message> lastMessages = messageRepository.findTop1ByChatIdOrderByCreatedAtDesc(chat.getId());
-                if (!lastMessages.isEmpty()) {
-                    response.setLastMessage(lastMessages.get(0).getContent());
-                }
-                
+                response.setId(row.getId());
+                response.setPatientId(row.getPatientId());
+                response.setDoctorId(row.getDoctorId());
+                response.setTitle(row.getTitle());
+                response.setUpdatedAt(row.getUpdatedAt());
+                response.setPatientName(row.getPatientName());
+                response.setPatientProfilePicture(User.avatarUrl(row.getPatientId(), row.getPatientProfilePictureId(), User.AVATAR_SMALL));
+                response.setDoctorName(row.getDoctorName());
+                response.setDoctorSpecialization(row.getDoctorSpecialization());
+                response.setDoctorProfilePicture(User.avatarUrl(row.getDoctorId(), row.getDoctorProfilePictureId(), User.AVATAR_SMALL));
+                response.setLastMessage(row.getLastMessage());
+                response.setLastMessageSenderId(row.getLastMessageSenderId());
+                response.setLastMessageAt(row.getLastMessageAt());
+                response.setMessageCount(row.getMessageCount() != null ? row.getMessageCount() : 0L);
                 return response;
             }).toList();
 
@@ -160,53 +157,98 @@ public class ChatController {
         }
     }
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
+    // ✅ PAGINAÇÃO POR CURSOR: ?before=<messageId> carrega mensagens mais antigas,
+    // ?after=<messageId> carrega mensagens mais novas; sem cursor retorna a página mais recente
     @GetMapping("/{chatId}/messages")
-    public ResponseEntity<?> getMessages(@PathVariable Long chatId, @RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getMessages(
+            @PathVariable Long chatId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @AuthenticationPrincipal CustomUserPrincipal principal) {
         try {
-            String username = extractUsernameFromAuth(authHeader);
-            User user = userRepository.findByUsername(username).orElseThrow();
             
             Chat chat = chatRepository.findById(chatId).orElseThrow();
-            if (!chat.getPatientId().equals(user.getId()) && !chat.getDoctorId().equals(user.getId())) {
+            if (!chat.getPatientId().equals(principal.getId()) && !chat.getDoctorId().equals(principal.getId())) {
                 return ResponseEntity.status(403).body("Acesso negado a este chat");
             }
 
-            List<Message> messages = messageRepository.findByChatIdOrderByCreatedAtAsc(chatId);
-            
-            // ✅ MELHORADO: Incluir foto de perfil do remetente
-            List<MessageResponse> messageResponses = messages.stream().map(message -> {
-                MessageResponse response = new MessageResponse();
-                response.setId(message.getId());
-                response.setChatId(message.getChatId());
-                response.setSenderId(message.getSenderId());
-                response.setSenderRole(message.getSenderRole());
-                response.setContent(message.getContent());
-                response.setCreatedAt(message.getCreatedAt());
-                
-                // Buscar informações do remetente
-                userRepository.findById(message.getSenderId()).ifPresent(sender -> {
-                    response.setSenderName(sender.getFullName());
-                    response.setSenderProfilePicture(sender.getProfilePicture()); // ✅ FOTO
-                });
-                
-                return response;
-            }).toList();
+            if (before != null && after != null) {
+                return ResponseEntity.badRequest().body("Informe apenas um cursor: before ou after");
+            }
+
+            int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+            // Busca um item a mais para saber se existe outra página
+            Pageable pageable = PageRequest.of(0, pageSize + 1);
+
+            List<Message> page;
+            boolean hasMore;
+            if (after != null) {
+                Message cursor = findCursor(chatId, after);
+                page = new ArrayList<>(messageRepository.findPageAfter(chatId, cursor.getCreatedAt(), cursor.getId(), pageable));
+                hasMore = page.size() > pageSize;
+                if (hasMore) page = page.subList(0, pageSize);
+            } else {
+                if (before != null) {
+                    Message cursor = findCursor(chatId, before);
+                    page = new ArrayList<>(messageRepository.findPageBefore(chatId, cursor.getCreatedAt(), cursor.getId(), pageable));
+                } else {
+                    page = new ArrayList<>(messageRepository.findByChatIdOrderByCreatedAtDescIdDesc(chatId, pageable));
+                }
+                hasMore = page.size() > pageSize;
+                if (hasMore) page = page.subList(0, pageSize);
+                // Consultas "para trás" vêm em ordem decrescente; a resposta é sempre cronológica
+                Collections.reverse(page);
+            }
+
+            // ✅ Remetentes só podem ser os dois participantes: uma única consulta
+            Map<Long, User> participants = new HashMap<>();
+            userRepository.findAllById(List.of(chat.getPatientId(), chat.getDoctorId()))
+                    .forEach(u -> participants.put(u.getId(), u));
+
+            List<MessageResponse> messageResponses = page.stream()
+                    .map(message -> MessageResponse.of(message, participants.get(message.getSenderId())))
+                    .toList();
+
+            MessagePageResponse pageResponse = new MessagePageResponse();
+            pageResponse.setMessages(messageResponses);
+            if (!messageResponses.isEmpty()) {
+                Long oldestId = messageResponses.get(0).getId();
+                Long newestId = messageResponses.get(messageResponses.size() - 1).getId();
+                // prevCursor: existe histórico mais antigo a carregar
+                boolean hasOlder = after != null || hasMore;
+                pageResponse.setPrevCursor(hasOlder ? oldestId : null);
+                // nextCursor: sempre aponta para a mensagem mais nova, para buscar novidades
+                pageResponse.setNextCursor(newestId);
+                pageResponse.setHasMoreNewer(after != null && hasMore);
+            } else {
+                pageResponse.setNextCursor(after);
+            }
+            pageResponse.setHasMoreOlder(pageResponse.getPrevCursor() != null);
 
-            return ResponseEntity.ok(messageResponses);
+            return ResponseEntity.ok(pageResponse);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Erro ao buscar mensagens: " + e.getMessage());
         }
     }
 
+    private Message findCursor(Long chatId, Long messageId) {
+        return messageRepository.findById(messageId)
+                .filter(m -> chatId.equals(m.getChatId()))
+                .orElseThrow(() -> new RuntimeException("Cursor inválido: " + messageId));
+    }
+
     @PostMapping("/{chatId}/message")
     public ResponseEntity<?> sendMessage(
             @PathVariable Long chatId,
             @RequestBody MessageRequest req,
-            @RequestHeader("Authorization") String authHeader
+            @AuthenticationPrincipal CustomUserPrincipal principal
     ) {
         try {
-            String username = extractUsernameFromAuth(authHeader);
-            User user = userRepository.findByUsername(username).orElseThrow();
+            User user = currentUser(principal).orElseThrow();
 
             Chat chat = chatRepository.findById(chatId).orElseThrow();
             if (!chat.getPatientId().equals(user.getId()) && !chat.getDoctorId().equals(user.getId())) {
@@ -218,24 +260,26 @@ public class ChatController {
             message.setContent(req.getContent());
             message.setSenderId(user.getId());
             message.setSenderRole(user.getRole());
-            message.setCreatedAt(Instant.now());
-            Message savedMessage = messageRepository.save(message);
+            if (req.getClientMessageId() != null) {
+                if (req.getClientMessageId().isBlank() || req.getClientMessageId().length() > 64) {
+                    return ResponseEntity.badRequest().body("clientMessageId inválido");
+                }
+                message.setClientMessageId(req.getClientMessageId());
+            }
+            // createdAt é definido pelo ChatMessageWriter, na hora do insert
 
-            chat.setUpdatedAt(Instant.now());
-            chatRepository.save(chat);
-
-            // ✅ MELHORADO: Retornar mensagem com foto de perfil
-            MessageResponse response = new MessageResponse();
-            response.setId(savedMessage.getId());
-            response.setChatId(savedMessage.getChatId());
-            response.setSenderId(savedMessage.getSenderId());
-            response.setSenderRole(savedMessage.getSenderRole());
-            response.setContent(savedMessage.getContent());
-            response.setCreatedAt(savedMessage.getCreatedAt());
-            response.setSenderName(user.getFullName());
-            response.setSenderProfilePicture(user.getProfilePicture()); // ✅ FOTO
+            // ✅ Grava mensagem + última mensagem do chat (direto ou em grupo) e só responde após o commit;
+            // a resposta já vem com a foto de perfil e a entrega em tempo real sai depois do commit
+            MessageResponse response = chatMessageWriter.write(message, user);
 
             return ResponseEntity.ok(response);
+        } catch (TimeoutException e) {
+            // ✅ Gravação pendente, não erro: o reenvio com o mesmo clientMessageId confirma sem duplicar
+            Map<String, Object> pending = new HashMap<>();
+            pending.put("status", "PENDING");
+            pending.put("clientMessageId", req.getClientMessageId());
+            pending.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(pending);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Erro ao enviar mensagem: " + e.getMessage());
         }
@@ -243,18 +287,14 @@ public class ChatController {
 
     // ✅ NOVO: Endpoint para atualizar último acesso ao abrir chat
     @PostMapping("/{chatId}/update-access")
-    public ResponseEntity<?> updateChatAccess(@PathVariable Long chatId, @RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> updateChatAccess(@PathVariable Long chatId, @AuthenticationPrincipal CustomUserPrincipal principal) {
         try {
-            String username = extractUsernameFromAuth(authHeader);
-            Optional<User> userOpt = userRepository.findByUsername(username);
-            
-            if (userOpt.isPresent()) {
-                User user = userOpt.get();
-                user.setLastSeen(Instant.now());
-                userRepository.save(user);
-                return ResponseEntity.ok().build();
+            if (principal == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
             }
-            return ResponseEntity.notFound().build();
+            // ✅ Só memória; users.last_seen é gravado em lote pelo PresenceRegistry
+            presenceRegistry.touch(principal.getId());
+            return ResponseEntity.ok().build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Erro ao atualizar acesso: " + e.getMessage());
         }
@@ -301,6 +341,9 @@ class ChatResponse {
     private String doctorProfilePicture; // ✅ NOVO
     private String title;
     private String lastMessage;
+    private Long lastMessageSenderId;
+    private Instant lastMessageAt;
+    private Long messageCount;
     private Instant updatedAt;
     
     public Long getId() { return id; }
@@ -333,43 +376,40 @@ class ChatResponse {
     public String getLastMessage() { return lastMessage; }
     public void setLastMessage(String lastMessage) { this.lastMessage = lastMessage; }
     
+    public Long getLastMessageSenderId() { return lastMessageSenderId; }
+    public void setLastMessageSenderId(Long lastMessageSenderId) { this.lastMessageSenderId = lastMessageSenderId; }
+    
+    public Instant getLastMessageAt() { return lastMessageAt; }
+    public void setLastMessageAt(Instant lastMessageAt) { this.lastMessageAt = lastMessageAt; }
+    
+    public Long getMessageCount() { return messageCount; }
+    public void setMessageCount(Long messageCount) { this.messageCount = messageCount; }
+    
     public Instant getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
 }
 
-class MessageResponse {
-    private Long id;
-    private Long chatId;
-    private Long senderId;
-    private String senderName;
-    private String senderRole;
-    private String senderProfilePicture; // ✅ NOVO
-    private String content;
-    private Instant createdAt;
-    
-    public Long getId() { return id; }
-    public void setId(Long id) { this.id = id; }
-    
-    public Long getChatId() { return chatId; }
-    public void setChatId(Long chatId) { this.chatId = chatId; }
-    
-    public Long getSenderId() { return senderId; }
-    public void setSenderId(Long senderId) { this.senderId = senderId; }
+class MessagePageResponse {
+    private List<MessageResponse> messages;
+    private Long prevCursor;
+    private Long nextCursor;
+    private boolean hasMoreOlder;
+    private boolean hasMoreNewer;
     
-    public String getSenderName() { return senderName; }
-    public void setSenderName(String senderName) { this.senderName = senderName; }
+    public List<MessageResponse> getMessages() { return messages; }
+    public void setMessages(List<MessageResponse> messages) { this.messages = messages; }
     
-    public String getSenderRole() { return senderRole; }
-    public void setSenderRole(String senderRole) { this.senderRole = senderRole; }
+    public Long getPrevCursor() { return prevCursor; }
+    public void setPrevCursor(Long prevCursor) { this.prevCursor = prevCursor; }
     
-    public String getSenderProfilePicture() { return senderProfilePicture; }
-    public void setSenderProfilePicture(String senderProfilePicture) { this.senderProfilePicture = senderProfilePicture; }
+    public Long getNextCursor() { return nextCursor; }
+    public void setNextCursor(Long nextCursor) { this.nextCursor = nextCursor; }
     
-    public String getContent() { return content; }
-    public void setContent(String content) { this.content = content; }
+    public boolean isHasMoreOlder() { return hasMoreOlder; }
+    public void setHasMoreOlder(boolean hasMoreOlder) { this.hasMoreOlder = hasMoreOlder; }
     
-    public Instant getCreatedAt() { return createdAt; }
-    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+    public boolean isHasMoreNewer() { return hasMoreNewer; }
+    public void setHasMoreNewer(boolean hasMoreNewer) { this.hasMoreNewer = hasMoreNewer; }
 }
 
 class StartChatRequest {
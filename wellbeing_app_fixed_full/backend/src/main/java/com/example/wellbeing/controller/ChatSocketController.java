@@ -0,0 +1,112 @@
+package com.example.wellbeing.controller;
+
+import com.example.wellbeing.dto.MessageResponse;
+import com.example.wellbeing.model.Chat;
+import com.example.wellbeing.model.Message;
+import com.example.wellbeing.model.User;
+import com.example.wellbeing.repository.ChatRepository;
+import com.example.wellbeing.repository.MessageRepository;
+import com.example.wellbeing.repository.UserRepository;
+import com.example.wellbeing.security.WebSocketAuthInterceptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Endpoints STOMP do chat. As mensagens novas são empurradas pelo ChatMessagePublisher;
+ * aqui fica apenas a retomada a partir da última mensagem vista pelo cliente.
+ */
+@Controller
+public class ChatSocketController {
+
+    private static final int MAX_RESUME_MESSAGES = 200;
+
+    private final ChatRepository chatRepository;
+    private final MessageRepository messageRepository;
+    private final UserRepository userRepository;
+
+    public ChatSocketController(ChatRepository chatRepository, MessageRepository messageRepository, UserRepository userRepository) {
+        this.chatRepository = chatRepository;
+        this.messageRepository = messageRepository;
+        this.userRepository = userRepository;
+    }
+
+    // ✅ Retomar após reconexão: devolve as mensagens posteriores a lastMessageId
+    @MessageMapping("/chats/{chatId}/resume")
+    @SendToUser("/queue/chats/resume")
+    public ResumeResponse resume(@DestinationVariable Long chatId,
+                                 @Payload ResumeRequest request,
+                                 SimpMessageHeaderAccessor accessor) {
+        Long userId = WebSocketAuthInterceptor.currentUserId(accessor);
+        Chat chat = chatRepository.findById(chatId)
+                .orElseThrow(() -> new AccessDeniedException("Chat não encontrado"));
+        if (!WebSocketAuthInterceptor.isParticipant(chat, userId)) {
+            throw new AccessDeniedException("Acesso negado a este chat");
+        }
+
+        PageRequest page = PageRequest.of(0, MAX_RESUME_MESSAGES + 1);
+        List<Message> missed;
+        if (request.getLastMessageId() == null) {
+            missed = new ArrayList<>(messageRepository.findByChatIdOrderByCreatedAtDescIdDesc(chatId, page));
+            Collections.reverse(missed);
+        } else {
+            Message cursor = messageRepository.findById(request.getLastMessageId())
+                    .filter(m -> chatId.equals(m.getChatId()))
+                    .orElseThrow(() -> new IllegalArgumentException("Cursor inválido: " + request.getLastMessageId()));
+            missed = messageRepository.findPageAfter(chatId, cursor.getCreatedAt(), cursor.getId(), page);
+        }
+
+        boolean truncated = missed.size() > MAX_RESUME_MESSAGES;
+        if (truncated) {
+            missed = request.getLastMessageId() == null
+                    ? missed.subList(missed.size() - MAX_RESUME_MESSAGES, missed.size())
+                    : missed.subList(0, MAX_RESUME_MESSAGES);
+        }
+
+        Map<Long, User> participants = new HashMap<>();
+        userRepository.findAllById(List.of(chat.getPatientId(), chat.getDoctorId()))
+                .forEach(u -> participants.put(u.getId(), u));
+
+        ResumeResponse response = new ResumeResponse();
+        response.setChatId(chatId);
+        response.setMessages(missed.stream()
+                .map(m -> MessageResponse.of(m, participants.get(m.getSenderId())))
+                .toList());
+        // Se truncado, o cliente continua pela API REST com ?after=<último id>
+        response.setTruncated(truncated);
+        return response;
+    }
+}
+
+class ResumeRequest {
+    private Long lastMessageId;
+
+    public Long getLastMessageId() { return lastMessageId; }
+    public void setLastMessageId(Long lastMessageId) { this.lastMessageId = lastMessageId; }
+}
+
+class ResumeResponse {
+    private Long chatId;
+    private List<MessageResponse> messages;
+    private boolean truncated;
+
+    public Long getChatId() { return chatId; }
+    public void setChatId(Long chatId) { this.chatId = chatId; }
+
+    public List<MessageResponse> getMessages() { return messages; }
+    public void setMessages(List<MessageResponse> messages) { this.messages = messages; }
+
+    public boolean isTruncated() { return truncated; }
+    public void setTruncated(boolean truncated) { this.truncated = truncated; }
+}
@@ -2,8 +2,14 @@ package com.example.wellbeing.controller;
 
 import com.example.wellbeing.dto.DailyLogDTO;
 import com.example.wellbeing.model.DailyLog;
+import com.example.wellbeing.security.CustomUserPrincipal;
+import com.example.wellbeing.service.CohortAnalyticsService;
 import com.example.wellbeing.service.DailyLogService;
+import com.example.wellbeing.service.DailyLogStatsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -16,12 +22,91 @@ public class DailyLogController {
     @Autowired
     private DailyLogService service;
 
+    @Autowired
+    private DailyLogStatsService statsService;
+
+    @Autowired
+    private CohortAnalyticsService cohortAnalyticsService;
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // ✅ Apenas os registros do usuário autenticado, paginados por cursor (id do último item recebido)
     @GetMapping
-    public List<DailyLog> list() { 
-        System.out.println("📋 Buscando todos os registros daily...");
-        List<DailyLog> logs = service.findAll();
-        System.out.println("✅ Encontrados " + logs.size() + " registros");
-        return logs; 
+    public ResponseEntity<?> list(
+            @AuthenticationPrincipal CustomUserPrincipal principal,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            if (principal == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Usuário não autenticado");
+            }
+
+            int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+            System.out.println("📋 Buscando registros daily do usuário " + principal.getId() + " (before=" + before + ", limit=" + pageSize + ")");
+
+            // Busca um item a mais só para saber se existe próxima página
+            List<DailyLog> logs = service.findPage(principal.getId(), before, pageSize + 1);
+            boolean hasMore = logs.size() > pageSize;
+            if (hasMore) {
+                logs = logs.subList(0, pageSize);
+            }
+
+            DailyLogPageResponse response = new DailyLogPageResponse();
+            response.setItems(logs);
+            response.setHasMore(hasMore);
+            response.setNextCursor(hasMore ? logs.get(logs.size() - 1).getId() : null);
+
+            System.out.println("✅ Encontrados " + logs.size() + " registros");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Erro ao buscar registros: " + e.getMessage());
+        }
+    }
+
+    // ✅ Último registro do usuário autenticado (lê uma única linha)
+    @GetMapping("/latest")
+    public ResponseEntity<?> latest(@AuthenticationPrincipal CustomUserPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Usuário não autenticado");
+        }
+        return service.findLatest(principal.getId())
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    // ✅ Estatísticas de tendência (médias 7/30/90 dias, mín/máx, sequências, dia da semana)
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats(@AuthenticationPrincipal CustomUserPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Usuário não autenticado");
+        }
+        try {
+            return ResponseEntity.ok(statsService.getStats(principal.getId()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Erro ao calcular estatísticas: " + e.getMessage());
+        }
+    }
+
+    // ✅ Tendências dos pacientes do médico autenticado, com os que pioraram sinalizados
+    @GetMapping("/cohort")
+    public ResponseEntity<?> cohort(
+            @AuthenticationPrincipal CustomUserPrincipal principal,
+            @RequestParam(required = false) Integer days) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Usuário não autenticado");
+        }
+        if (!"DOCTOR".equals(principal.getRole())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Apenas médicos podem ver a análise de pacientes");
+        }
+        try {
+            int window = days == null ? CohortAnalyticsService.DEFAULT_DAYS
+                    : Math.max(CohortAnalyticsService.MIN_DAYS, Math.min(days, CohortAnalyticsService.MAX_DAYS));
+            System.out.println("📈 Análise de coorte do médico " + principal.getId() + " (" + window + " dias)");
+            return ResponseEntity.ok(cohortAnalyticsService.analyze(principal.getId(), window));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Erro ao calcular tendências: " + e.getMessage());
+        }
     }
 
     @GetMapping("/{id}")
@@ -37,6 +122,22 @@ public class DailyLogController {
         return service.save(dto); 
     }
 
+    // ✅ Envio em lote (sincronização offline): uma transação, insert em batch, idempotente por idempotencyKey
+    @PostMapping("/batch")
+    public ResponseEntity<?> createBatch(
+            @AuthenticationPrincipal CustomUserPrincipal principal,
+            @RequestBody List<DailyLogDTO> dtos) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Usuário não autenticado");
+        }
+        try {
+            System.out.println("📦 Recebendo lote de " + (dtos == null ? 0 : dtos.size()) + " registros do usuário " + principal.getId());
+            return ResponseEntity.ok(service.saveBatch(principal.getId(), dtos));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Erro ao gravar registros: " + e.getMessage());
+        }
+    }
+
     @PutMapping("/{id}")
     public DailyLog update(@PathVariable Long id, @RequestBody DailyLogDTO dto) { 
         System.out.println("✏️ Atualizando daily log ID: " + id);
@@ -48,4 +149,19 @@ public class DailyLogController {
         System.out.println("🗑️ Deletando daily log ID: " + id);
         service.delete(id); 
     }
-}
\ No newline at end of file
+}
+
+class DailyLogPageResponse {
+    private List<DailyLog> items;
+    private Long nextCursor;
+    private boolean hasMore;
+
+    public List<DailyLog> getItems() { return items; }
+    public void setItems(List<DailyLog> items) { this.items = items; }
+
+    public Long getNextCursor() { return nextCursor; }
+    public void setNextCursor(Long nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+}
@@ -1,20 +1,43 @@
 package com.example.wellbeing.controller;
 
+import com.example.wellbeing.dto.DoctorCardView;
+import com.example.wellbeing.dto.DoctorSearchResult;
+import com.example.wellbeing.dto.ExportJobView;
+import com.example.wellbeing.dto.UserProfileView;
+import com.example.wellbeing.model.ProfileImage;
 import com.example.wellbeing.model.User;
 import com.example.wellbeing.repository.UserRepository;
-import com.example.wellbeing.security.JwtUtil;
+import com.example.wellbeing.security.CustomUserPrincipal;
+import com.example.wellbeing.security.TokenRevocationCache;
+import com.example.wellbeing.service.DoctorDirectoryCache;
+import com.example.wellbeing.service.DoctorDirectoryChangedEvent;
+import com.example.wellbeing.service.DoctorSearchService;
+import com.example.wellbeing.service.ExportJobService;
+import com.example.wellbeing.service.PresenceRegistry;
+import com.example.wellbeing.service.ProfileImageService;
+import com.example.wellbeing.service.ThumbnailService;
+import com.example.wellbeing.service.UserDataExportService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.Base64;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import jakarta.servlet.http.HttpServletResponse;
 
@@ -27,18 +50,42 @@ public class UserController {
     private UserRepository userRepository;
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private TokenRevocationCache revocationCache;
 
-    private String extractUsernameFromAuth(String authHeader) {
-        String token = authHeader.replace("Bearer ", "");
-        return jwtUtil.extractUsername(token);
+    @Autowired
+    private ProfileImageService profileImageService;
+
+    @Autowired
+    private DoctorSearchService doctorSearchService;
+
+    @Autowired
+    private DoctorDirectoryCache doctorDirectoryCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PresenceRegistry presenceRegistry;
+
+    @Autowired
+    private UserDataExportService exportService;
+
+    @Autowired
+    private ExportJobService exportJobService;
+
+    // ✅ Entidade completa do usuário autenticado (consulta o banco só no modo JWT stateless)
+    private Optional<User> currentUser(CustomUserPrincipal principal) {
+        if (principal == null) return Optional.empty();
+        if (principal.isUserLoaded()) return Optional.of(principal.getUser());
+        return userRepository.findById(principal.getId());
     }
 
     // ✅ ENDPOINT CORRIGIDO: Buscar especializações dos médicos
     @GetMapping("/doctors/specializations")
     public ResponseEntity<?> getDoctorSpecializations() {
         try {
-            List<String> specializations = userRepository.findDistinctSpecializations();
+            // ✅ Servido do cache do diretório, sem consulta
+            List<String> specializations = doctorDirectoryCache.getSpecializations();
             return ResponseEntity.ok(specializations);
         } catch (Exception e) {
             // Fallback para especialidades padrão
@@ -51,8 +98,7 @@ public class UserController {
     @GetMapping("/doctors/{id}")
     public ResponseEntity<?> getDoctorById(@PathVariable Long id) {
         try {
-            Optional<User> doctor = userRepository.findById(id)
-                    .filter(user -> "DOCTOR".equalsIgnoreCase(user.getRole()));
+            Optional<UserProfileView> doctor = userRepository.findDoctorProfileById(id);
             
             if (doctor.isPresent()) {
                 return ResponseEntity.ok(doctor.get());
@@ -66,18 +112,14 @@ public class UserController {
 
     // ✅ ENDPOINT: Atualizar último acesso (status online)
     @PostMapping("/update-last-seen")
-    public ResponseEntity<?> updateLastSeen(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> updateLastSeen(@AuthenticationPrincipal CustomUserPrincipal principal) {
         try {
-            String username = extractUsernameFromAuth(authHeader);
-            Optional<User> userOpt = userRepository.findByUsername(username);
-            
-            if (userOpt.isPresent()) {
-                User user = userOpt.get();
-                user.setLastSeen(java.time.Instant.now());
-                userRepository.save(user);
-                return ResponseEntity.ok().build();
+            if (principal == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
             }
-            return ResponseEntity.notFound().build();
+            // ✅ Só memória; users.last_seen é gravado em lote pelo PresenceRegistry
+            presenceRegistry.touch(principal.getId());
+            return ResponseEntity.ok().build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Erro ao atualizar último acesso: " + e.getMessage());
         }
@@ -87,18 +129,16 @@ public class UserController {
     @GetMapping("/{userId}/status")
     public ResponseEntity<?> getUserStatus(@PathVariable Long userId) {
         try {
-            Optional<User> userOpt = userRepository.findById(userId);
-            if (userOpt.isEmpty()) {
+            // ✅ Respondido pelo registro de presença em memória
+            Optional<PresenceRegistry.Status> status = presenceRegistry.status(userId);
+            if (status.isEmpty()) {
                 return ResponseEntity.notFound().build();
             }
-
-            User user = userOpt.get();
-            boolean isOnline = user.isOnline();
             
             java.util.Map<String, Object> response = new java.util.HashMap<>();
-            response.put("online", isOnline);
-            response.put("lastSeen", user.getLastSeen());
-            response.put("showOnlineStatus", user.getShowOnlineStatus());
+            response.put("online", status.get().online());
+            response.put("lastSeen", status.get().lastSeen());
+            response.put("showOnlineStatus", status.get().showOnlineStatus());
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -106,22 +146,50 @@ public class UserController {
         }
     }
 
+    // ✅ Métricas do cache do diretório (acertos, faltas, invalidações)
+    @GetMapping("/doctors/cache-stats")
+    public ResponseEntity<?> getDoctorDirectoryCacheStats() {
+        return ResponseEntity.ok(doctorDirectoryCache.getStats());
+    }
+
     // ✅ ENDPOINT: Buscar todos os doutores
     @GetMapping("/doctors")
     public ResponseEntity<?> getAllDoctors() {
         try {
-            List<User> doctors = userRepository.findByRoleIgnoreCase("DOCTOR");
+            List<DoctorCardView> doctors = doctorDirectoryCache.getDoctorCards();
             return ResponseEntity.ok(doctors);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Erro ao buscar doutores: " + e.getMessage());
         }
     }
 
+    // ✅ Busca no diretório: texto livre (nome, bio, especialidade), filtros, ordenação e paginação
+    @GetMapping("/doctors/search")
+    public ResponseEntity<?> searchDoctors(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String specialization,
+            @RequestParam(required = false) String location,
+            @RequestParam(required = false) Double minRating,
+            @RequestParam(required = false) Integer minExperience,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        try {
+            int pageSize = size == null ? DoctorSearchService.DEFAULT_PAGE_SIZE
+                    : Math.max(1, Math.min(size, DoctorSearchService.MAX_PAGE_SIZE));
+            DoctorSearchResult result = doctorSearchService.search(q, specialization, location,
+                    minRating, minExperience, sort, Math.max(0, page), pageSize);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Erro ao buscar doutores: " + e.getMessage());
+        }
+    }
+
     // ✅ Buscar usuário por ID
     @GetMapping("/{id}")
     public ResponseEntity<?> getUserById(@PathVariable Long id, @RequestHeader("Authorization") String authHeader) {
         try {
-            Optional<User> user = userRepository.findById(id);
+            Optional<UserProfileView> user = userRepository.findProfileById(id);
             if (user.isPresent()) {
                 return ResponseEntity.ok(user.get());
             } else {
@@ -134,10 +202,12 @@ public class UserController {
 
     // ✅ ENDPOINT: Buscar perfil do usuário autenticado
     @GetMapping("/profile")
-    public ResponseEntity<?> getUserProfile(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getUserProfile(@AuthenticationPrincipal CustomUserPrincipal principal) {
         try {
-            String username = extractUsernameFromAuth(authHeader);
-            Optional<User> user = userRepository.findByUsername(username);
+            // Usuário já carregado pelo filtro: só converte; no modo stateless, projeção enxuta
+            Optional<UserProfileView> user = principal == null ? Optional.empty()
+                    : principal.isUserLoaded() ? Optional.of(UserProfileView.of(principal.getUser()))
+                    : userRepository.findProfileById(principal.getId());
             
             if (user.isPresent()) {
                 return ResponseEntity.ok(user.get());
@@ -162,25 +232,26 @@ public class UserController {
             }
 
             // Validar tipo de arquivo
-            if (!file.getContentType().startsWith("image/")) {
+            if (file.getContentType() == null || !file.getContentType().startsWith("image/")) {
                 return ResponseEntity.badRequest().body("Apenas arquivos de imagem são permitidos");
             }
 
             // Validar tamanho (máximo 5MB)
-            if (file.getSize() > 5 * 1024 * 1024) {
+            if (file.getSize() > ProfileImageService.MAX_SIZE_BYTES) {
                 return ResponseEntity.badRequest().body("A imagem deve ter no máximo 5MB");
             }
 
             User user = userOpt.get();
             
-            // Converter para Base64
-            String base64Image = "data:" + file.getContentType() + ";base64," + 
-                Base64.getEncoder().encodeToString(file.getBytes());
-            
-            user.setProfilePicture(base64Image);
+            // ✅ Armazenar por hash do conteúdo; o usuário guarda apenas a referência
+            String hash = profileImageService.store(file.getBytes(), file.getContentType());
+            user.setProfilePictureId(hash);
 
             User savedUser = userRepository.save(user);
-            return ResponseEntity.ok(savedUser);
+            if ("DOCTOR".equals(savedUser.getRole())) {
+                eventPublisher.publishEvent(new DoctorDirectoryChangedEvent(savedUser.getId()));
+            }
+            return ResponseEntity.ok(UserProfileView.of(savedUser));
 
         } catch (IOException e) {
             return ResponseEntity.badRequest().body("Erro ao processar a imagem: " + e.getMessage());
@@ -205,19 +276,66 @@ public class UserController {
             
             // Validar se é Base64
             if (request.getProfilePicture() != null && request.getProfilePicture().startsWith("data:image")) {
-                user.setProfilePicture(request.getProfilePicture());
+                user.setProfilePictureId(profileImageService.storeDataUrl(request.getProfilePicture()));
             } else {
                 return ResponseEntity.badRequest().body("Dados de imagem inválidos");
             }
 
             User savedUser = userRepository.save(user);
-            return ResponseEntity.ok(savedUser);
+            if ("DOCTOR".equals(savedUser.getRole())) {
+                eventPublisher.publishEvent(new DoctorDirectoryChangedEvent(savedUser.getId()));
+            }
+            return ResponseEntity.ok(UserProfileView.of(savedUser));
 
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Erro ao atualizar foto de perfil: " + e.getMessage());
         }
     }
 
+    // ✅ Servir a foto de perfil com ETag/Cache-Control (público, usado direto em <img src>)
+    @GetMapping("/{id}/avatar")
+    public ResponseEntity<?> getAvatar(
+            @PathVariable Long id,
+            @RequestParam(value = "v", required = false) String version,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<String> hashOpt = userRepository.findProfilePictureIdById(id);
+        if (hashOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String hash = hashOpt.get();
+        Integer thumbnail = ThumbnailService.bestSize(size);
+        String key = thumbnail != null ? ProfileImage.thumbnailKey(hash, thumbnail) : hash;
+        String etag = "\"" + key + "\"";
+        // URL versionada pelo hash nunca muda de conteúdo; sem versão, revalida sempre
+        CacheControl cacheControl = hash.equals(version)
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.noCache().cachePublic();
+
+        // Revalidação não precisa ler a imagem do banco
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+
+        Optional<ProfileImage> image = profileImageService.find(hash, size);
+        if (image.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        // Miniatura ainda não gerada: serve a original sem cache longo nem ETag da miniatura
+        if (!image.get().getHash().equals(key)) {
+            etag = "\"" + image.get().getHash() + "\"";
+            cacheControl = CacheControl.noCache().cachePublic();
+        }
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .contentType(MediaType.parseMediaType(image.get().getContentType()))
+                .contentLength(image.get().getSizeBytes())
+                .body(new ByteArrayResource(image.get().getData()));
+    }
+
     // ✅ Remover foto de perfil
     @DeleteMapping("/{id}/profile-picture")
     public ResponseEntity<?> removeProfilePicture(@PathVariable Long id, @RequestHeader("Authorization") String authHeader) {
@@ -228,10 +346,13 @@ public class UserController {
             }
 
             User user = userOpt.get();
-            user.setProfilePicture(null);
+            user.setProfilePictureId(null);
 
             User savedUser = userRepository.save(user);
-            return ResponseEntity.ok(savedUser);
+            if ("DOCTOR".equals(savedUser.getRole())) {
+                eventPublisher.publishEvent(new DoctorDirectoryChangedEvent(savedUser.getId()));
+            }
+            return ResponseEntity.ok(UserProfileView.of(savedUser));
 
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Erro ao remover foto de perfil: " + e.getMessage());
@@ -273,7 +394,11 @@ public class UserController {
             }
 
             User savedUser = userRepository.save(user);
-            return ResponseEntity.ok(savedUser);
+            // ✅ Card do médico mudou: invalida o cache do diretório
+            if ("DOCTOR".equals(savedUser.getRole())) {
+                eventPublisher.publishEvent(new DoctorDirectoryChangedEvent(savedUser.getId()));
+            }
+            return ResponseEntity.ok(UserProfileView.of(savedUser));
 
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Erro ao atualizar usuário: " + e.getMessage());
@@ -284,10 +409,9 @@ public class UserController {
     @PutMapping("/privacy-settings")
     public ResponseEntity<?> updatePrivacySettings(
             @RequestBody PrivacySettingsRequest request,
-            @RequestHeader("Authorization") String authHeader) {
+            @AuthenticationPrincipal CustomUserPrincipal principal) {
         try {
-            String username = extractUsernameFromAuth(authHeader);
-            Optional<User> userOpt = userRepository.findByUsername(username);
+            Optional<User> userOpt = currentUser(principal);
             
             if (userOpt.isEmpty()) {
                 return ResponseEntity.notFound().build();
@@ -312,7 +436,8 @@ public class UserController {
             }
 
             User savedUser = userRepository.save(user);
-            return ResponseEntity.ok(savedUser);
+            presenceRegistry.setHidden(savedUser.getId(), !Boolean.TRUE.equals(savedUser.getShowOnlineStatus()));
+            return ResponseEntity.ok(UserProfileView.of(savedUser));
 
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Erro ao atualizar configurações de privacidade: " + e.getMessage());
@@ -320,10 +445,9 @@ public class UserController {
     }
 
     @DeleteMapping("/account")
-    public ResponseEntity<?> deleteAccount(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> deleteAccount(@AuthenticationPrincipal CustomUserPrincipal principal) {
         try {
-            String username = extractUsernameFromAuth(authHeader);
-            Optional<User> userOpt = userRepository.findByUsername(username);
+            Optional<User> userOpt = currentUser(principal);
             
             if (userOpt.isEmpty()) {
                 return ResponseEntity.notFound().build();
@@ -331,6 +455,11 @@ public class UserController {
 
             User user = userOpt.get();
             userRepository.delete(user);
+            if ("DOCTOR".equals(user.getRole())) {
+                eventPublisher.publishEvent(new DoctorDirectoryChangedEvent(user.getId()));
+            }
+            // ✅ Nenhum token da conta excluída continua válido no modo stateless
+            revocationCache.revokeDeletedAccount(user.getId());
             
             return ResponseEntity.ok().body("Conta excluída com sucesso");
 
@@ -341,10 +470,9 @@ public class UserController {
 
     // ✅ Exportar dados do usuário (mantido da versão anterior)
     @GetMapping("/export-data")
-    public void exportUserData(HttpServletResponse response, @RequestHeader("Authorization") String authHeader) {
+    public void exportUserData(HttpServletResponse response, @AuthenticationPrincipal CustomUserPrincipal principal) {
         try {
-            String username = extractUsernameFromAuth(authHeader);
-            Optional<User> userOpt = userRepository.findByUsername(username);
+            Optional<User> userOpt = currentUser(principal);
             
             if (userOpt.isEmpty()) {
                 response.setStatus(HttpServletResponse.SC_NOT_FOUND);
@@ -352,61 +480,24 @@ public class UserController {
             }
 
             User user = userOpt.get();
+            String username = user.getUsername();
             
             // Configurar resposta para download
             response.setContentType("application/zip");
             response.setHeader("Content-Disposition", "attachment; filename=\"serenecare-dados-" + username + ".zip\"");
             
-            // Criar arquivo ZIP
-            ZipOutputStream zipOut = new ZipOutputStream(response.getOutputStream());
-            
-            // Adicionar dados do usuário como CSV
-            ZipEntry userEntry = new ZipEntry("dados-usuario.csv");
-            zipOut.putNextEntry(userEntry);
-            
-            StringBuilder csvData = new StringBuilder();
-            csvData.append("Campo,Valor\n");
-            csvData.append("ID,").append(user.getId()).append("\n");
-            csvData.append("Username,").append(user.getUsername()).append("\n");
-            csvData.append("Email,").append(user.getEmail()).append("\n");
-            csvData.append("Nome Completo,").append(user.getFullName()).append("\n");
-            csvData.append("Role,").append(user.getRole()).append("\n");
-            csvData.append("Data de Criação,").append(user.getCreatedAt()).append("\n");
-            csvData.append("Bio,").append(user.getBio()).append("\n");
-            csvData.append("Localização,").append(user.getLocation()).append("\n");
-            csvData.append("Rating,").append(user.getRating()).append("\n");
-            csvData.append("Contagem de Reviews,").append(user.getReviewCount()).append("\n");
-            
-            if ("DOCTOR".equals(user.getRole())) {
-                csvData.append("Especialização,").append(user.getEspecializacao()).append("\n");
-                csvData.append("CRM,").append(user.getCrm()).append("\n");
-                csvData.append("Anos de Experiência,").append(user.getExperienceYears()).append("\n");
-            }
-            
-            // Configurações de privacidade
-            csvData.append("Visibilidade do Perfil,").append(user.getProfileVisibility()).append("\n");
-            csvData.append("Mostrar Status Online,").append(user.getShowOnlineStatus()).append("\n");
-            csvData.append("Permitir Mensagens,").append(user.getAllowMessages()).append("\n");
-            csvData.append("Mostrar Atividade,").append(user.getShowActivity()).append("\n");
-            csvData.append("Coleta de Dados,").append(user.getDataCollection()).append("\n");
-            
-            zipOut.write(csvData.toString().getBytes());
-            zipOut.closeEntry();
-            
-            // Adicionar arquivo de informações
-            ZipEntry infoEntry = new ZipEntry("LEIA-ME.txt");
-            zipOut.putNextEntry(infoEntry);
-            String info = "Exportação de dados - SereneCare\n" +
-                         "Usuário: " + user.getUsername() + "\n" +
-                         "Data da exportação: " + java.time.LocalDateTime.now() + "\n" +
-                         "Este arquivo contém os dados pessoais do usuário no sistema SereneCare.";
-            zipOut.write(info.getBytes());
-            zipOut.closeEntry();
-            
-            zipOut.close();
+            // ✅ ZIP escrito direto na resposta, linha a linha a partir do banco
+            exportService.writeExport(user, response.getOutputStream());
+            response.flushBuffer();
             
         } catch (Exception e) {
+            // Com o download já em andamento não há como trocar o status: só registra
+            if (response.isCommitted()) {
+                System.err.println("Erro ao exportar dados (download interrompido): " + e.getMessage());
+                return;
+            }
             try {
+                response.reset();
                 response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
                 PrintWriter writer = response.getWriter();
                 writer.write("Erro ao exportar dados: " + e.getMessage());
@@ -415,6 +506,64 @@ public class UserController {
             }
         }
     }
+
+    // ✅ Exportação em segundo plano: enfileira e responde na hora (202)
+    @PostMapping("/export-jobs")
+    public ResponseEntity<?> createExportJob(@AuthenticationPrincipal CustomUserPrincipal principal) {
+        try {
+            Optional<User> userOpt = currentUser(principal);
+            if (userOpt.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Usuário não autenticado");
+            }
+            ExportJobView job = exportJobService.submit(userOpt.get());
+            return ResponseEntity.accepted().body(job);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Muitas exportações na fila, tente novamente em alguns minutos");
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Erro ao iniciar exportação: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/export-jobs")
+    public ResponseEntity<?> listExportJobs(@AuthenticationPrincipal CustomUserPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Usuário não autenticado");
+        }
+        return ResponseEntity.ok(exportJobService.list(principal.getId()));
+    }
+
+    @GetMapping("/export-jobs/{jobId}")
+    public ResponseEntity<?> getExportJob(@PathVariable String jobId,
+                                          @AuthenticationPrincipal CustomUserPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Usuário não autenticado");
+        }
+        return exportJobService.find(jobId, principal.getId())
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // ✅ Download do arquivo pronto; o Spring atende Range (206) para Resource, então dá para retomar
+    @GetMapping("/export-jobs/{jobId}/download")
+    public ResponseEntity<Resource> downloadExportJob(@PathVariable String jobId,
+                                                      @AuthenticationPrincipal CustomUserPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        Optional<Path> artifact = exportJobService.artifact(jobId, principal.getId());
+        if (artifact.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"serenecare-dados-" + jobId + ".zip\"")
+                .eTag("\"" + jobId + "\"")
+                .cacheControl(CacheControl.noStore().cachePrivate())
+                .body(new FileSystemResource(artifact.get()));
+    }
 }
 
 // ✅ CLASSES DE REQUEST
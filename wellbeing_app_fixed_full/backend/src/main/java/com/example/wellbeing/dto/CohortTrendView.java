@@ -0,0 +1,32 @@
+package com.example.wellbeing.dto;
+
+import java.util.List;
+
+/**
+ * Tendência recente dos pacientes de um médico: compara os últimos dias
+ * (recentDays) com o restante da janela e sinaliza quem piorou.
+ */
+public record CohortTrendView(
+        Long doctorId,
+        int days,
+        int recentDays,
+        int patientCount,
+        int flaggedCount,
+        List<PatientTrend> patients
+) {
+    public record PatientTrend(
+            Long patientId,
+            String fullName,
+            int daysLogged,
+            Double painRecent,
+            Double painBaseline,
+            Double sleepRecent,
+            Double sleepBaseline,
+            Double moodRecent,
+            Double moodBaseline,
+            Double score,
+            Double zScore,
+            boolean worsened,
+            boolean outlier
+    ) {}
+}
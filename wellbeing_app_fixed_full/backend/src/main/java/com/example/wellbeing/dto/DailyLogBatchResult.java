@@ -0,0 +1,12 @@
+package com.example.wellbeing.dto;
+
+import java.util.List;
+
+/**
+ * Resultado de POST /api/daily/batch, na mesma ordem do envio. Itens com
+ * idempotencyKey já gravada voltam com duplicate = true e o id original.
+ */
+public record DailyLogBatchResult(int created, int duplicates, List<Item> items) {
+
+    public record Item(int index, Long id, String idempotencyKey, boolean duplicate) {}
+}
@@ -1,5 +1,7 @@
 package com.example.wellbeing.dto;
 
+import java.time.LocalDateTime;
+
 public class DailyLogDTO {
     public Long userId;
     public Integer painLevel;
@@ -11,4 +13,7 @@ public class DailyLogDTO {
     public String physicalActivity;
     public String medications;
     public String additionalNotes;
+    // ✅ Sincronização offline: chave única por registro no cliente e horário original do registro
+    public String idempotencyKey;
+    public LocalDateTime createdAt;
 }
@@ -0,0 +1,24 @@
+package com.example.wellbeing.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Estatísticas de tendência dos registros diários de um usuário: janelas de
+ * 7/30/90 dias, sequências de dias registrados e perfil por dia da semana.
+ */
+public record DailyLogStatsView(
+        Long userId,
+        LocalDate lastLogDay,
+        int currentStreak,
+        int longestStreak,
+        List<Window> windows,
+        List<DayOfWeekProfile> dayOfWeek
+) {
+    public record Metric(int count, Double average, Integer min, Integer max) {}
+
+    public record Window(int days, int daysLogged, int logCount, Metric pain, Metric sleep, Metric mood) {}
+
+    public record DayOfWeekProfile(String dayOfWeek, int logCount, Double painAverage,
+                                   Double sleepAverage, Double moodAverage) {}
+}
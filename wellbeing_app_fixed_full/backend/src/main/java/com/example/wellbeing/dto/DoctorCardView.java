@@ -0,0 +1,30 @@
+package com.example.wellbeing.dto;
+
+import com.example.wellbeing.model.User;
+
+/**
+ * Projeção do card de médico no diretório: só as colunas exibidas na lista,
+ * sem senha, configurações ou foto em si (apenas as URLs).
+ */
+public record DoctorCardView(
+        Long id,
+        String fullName,
+        String especializacao,
+        String crm,
+        Integer experienceYears,
+        String bio,
+        String location,
+        Double rating,
+        Integer reviewCount,
+        String profilePicture,
+        String profilePictureThumbnail
+) {
+    // Usado pelo construtor JPQL (SELECT new ...) em UserRepository
+    public DoctorCardView(Long id, String fullName, String especializacao, String crm,
+                          Integer experienceYears, String bio, String location,
+                          Double rating, Integer reviewCount, String profilePictureId) {
+        this(id, fullName, especializacao, crm, experienceYears, bio, location, rating, reviewCount,
+                User.avatarUrl(id, profilePictureId, User.AVATAR_LARGE),
+                User.avatarUrl(id, profilePictureId, User.AVATAR_MEDIUM));
+    }
+}
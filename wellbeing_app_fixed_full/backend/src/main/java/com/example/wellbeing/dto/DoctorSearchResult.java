@@ -0,0 +1,14 @@
+package com.example.wellbeing.dto;
+
+import java.util.List;
+
+/**
+ * Página de resultados da busca no diretório de médicos.
+ */
+public record DoctorSearchResult(
+        List<DoctorCardView> items,
+        int page,
+        int size,
+        long total,
+        boolean hasNext
+) {}
@@ -0,0 +1,10 @@
+package com.example.wellbeing.dto;
+
+import java.time.Instant;
+
+/**
+ * Estado de um job de exportação (POST /api/users/export-jobs). Com status
+ * READY o arquivo fica disponível em downloadUrl até expiresAt.
+ */
+public record ExportJobView(String id, String status, Instant createdAt, Instant completedAt,
+                            Instant expiresAt, Long sizeBytes, String error, String downloadUrl) {}
@@ -2,7 +2,12 @@ package com.example.wellbeing.dto;
 
 public class MessageRequest {
     private String content;
+    // Opcional: mesmo valor no reenvio devolve a mensagem já gravada
+    private String clientMessageId;
 
     public String getContent() { return content; }
     public void setContent(String content) { this.content = content; }
+
+    public String getClientMessageId() { return clientMessageId; }
+    public void setClientMessageId(String clientMessageId) { this.clientMessageId = clientMessageId; }
 }
@@ -0,0 +1,61 @@
+package com.example.wellbeing.dto;
+
+import com.example.wellbeing.model.Message;
+import com.example.wellbeing.model.User;
+
+import java.time.Instant;
+
+public class MessageResponse {
+    private Long id;
+    private Long chatId;
+    private Long senderId;
+    private String senderName;
+    private String senderRole;
+    private String senderProfilePicture; // ✅ NOVO
+    private String content;
+    private Instant createdAt;
+    private String clientMessageId;
+
+    public static MessageResponse of(Message message, User sender) {
+        MessageResponse response = new MessageResponse();
+        response.setId(message.getId());
+        response.setChatId(message.getChatId());
+        response.setSenderId(message.getSenderId());
+        response.setSenderRole(message.getSenderRole());
+        response.setContent(message.getContent());
+        response.setCreatedAt(message.getCreatedAt());
+        response.setClientMessageId(message.getClientMessageId());
+        if (sender != null) {
+            response.setSenderName(sender.getFullName());
+            response.setSenderProfilePicture(User.avatarUrl(sender.getId(), sender.getProfilePictureId(), User.AVATAR_SMALL));
+        }
+        return response;
+    }
+    
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getChatId() { return chatId; }
+    public void setChatId(Long chatId) { this.chatId = chatId; }
+    
+    public Long getSenderId() { return senderId; }
+    public void setSenderId(Long senderId) { this.senderId = senderId; }
+    
+    public String getSenderName() { return senderName; }
+    public void setSenderName(String senderName) { this.senderName = senderName; }
+    
+    public String getSenderRole() { return senderRole; }
+    public void setSenderRole(String senderRole) { this.senderRole = senderRole; }
+    
+    public String getSenderProfilePicture() { return senderProfilePicture; }
+    public void setSenderProfilePicture(String senderProfilePicture) { this.senderProfilePicture = senderProfilePicture; }
+    
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+    
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public String getClientMessageId() { return clientMessageId; }
+    public void setClientMessageId(String clientMessageId) { this.clientMessageId = clientMessageId; }
+}
@@ -0,0 +1,54 @@
+package com.example.wellbeing.dto;
+
+import com.example.wellbeing.model.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projeção do perfil de usuário: tudo que as telas de perfil usam,
+ * sem hash de senha nem dados internos de autenticação.
+ */
+public record UserProfileView(
+        Long id,
+        String username,
+        String email,
+        String fullName,
+        String role,
+        LocalDateTime createdAt,
+        String especializacao,
+        String crm,
+        Integer experienceYears,
+        String bio,
+        String location,
+        Double rating,
+        Integer reviewCount,
+        String profileVisibility,
+        Boolean showOnlineStatus,
+        Boolean allowMessages,
+        Boolean showActivity,
+        Boolean dataCollection,
+        String profilePicture,
+        String profilePictureThumbnail
+) {
+    // Usado pelo construtor JPQL (SELECT new ...) em UserRepository
+    public UserProfileView(Long id, String username, String email, String fullName, String role,
+                           LocalDateTime createdAt, String especializacao, String crm,
+                           Integer experienceYears, String bio, String location,
+                           Double rating, Integer reviewCount, String profileVisibility,
+                           Boolean showOnlineStatus, Boolean allowMessages, Boolean showActivity,
+                           Boolean dataCollection, String profilePictureId) {
+        this(id, username, email, fullName, role, createdAt, especializacao, crm, experienceYears, bio,
+                location, rating, reviewCount, profileVisibility, showOnlineStatus, allowMessages,
+                showActivity, dataCollection,
+                User.avatarUrl(id, profilePictureId, User.AVATAR_LARGE),
+                User.avatarUrl(id, profilePictureId, User.AVATAR_MEDIUM));
+    }
+
+    public static UserProfileView of(User u) {
+        return new UserProfileView(u.getId(), u.getUsername(), u.getEmail(), u.getFullName(), u.getRole(),
+                u.getCreatedAt(), u.getEspecializacao(), u.getCrm(), u.getExperienceYears(), u.getBio(),
+                u.getLocation(), u.getRating(), u.getReviewCount(), u.getProfileVisibility(),
+                u.getShowOnlineStatus(), u.getAllowMessages(), u.getShowActivity(), u.getDataCollection(),
+                u.getProfilePictureId());
+    }
+}
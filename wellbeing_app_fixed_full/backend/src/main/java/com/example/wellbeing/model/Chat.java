@@ -4,11 +4,21 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "chats")
+@Table(name = "chats", indexes = {
+        @Index(name = "idx_chats_patient_updated", columnList = "patient_id, updated_at DESC"),
+        @Index(name = "idx_chats_doctor_updated", columnList = "doctor_id, updated_at DESC")
+}, uniqueConstraints = {
+        // ✅ Um único chat por par paciente/médico
+        @UniqueConstraint(name = "uk_chats_patient_doctor", columnNames = {"patient_id", "doctor_id"})
+})
 public class Chat {
 
+    public static final String ID_SEQUENCE = "chats_seq";
+    public static final int ID_ALLOCATION_SIZE = 20;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "patient_id")
@@ -22,6 +32,30 @@ public class Chat {
     @Column(name = "updated_at")
     private Instant updatedAt = Instant.now();
 
+    // ✅ Última mensagem desnormalizada (mantida na escrita em sendMessage)
+    @Column(name = "last_message_preview", length = PREVIEW_LENGTH)
+    private String lastMessagePreview;
+
+    @Column(name = "last_message_sender_id")
+    private Long lastMessageSenderId;
+
+    @Column(name = "last_message_at")
+    private Instant lastMessageAt;
+
+    // Desempate de last_message_at (mesmo instante): a de maior id é a mais nova
+    @Column(name = "last_message_id")
+    private Long lastMessageId;
+
+    @Column(name = "message_count")
+    private Long messageCount = 0L;
+
+    public static final int PREVIEW_LENGTH = 255;
+
+    public static String toPreview(String content) {
+        if (content == null || content.length() <= PREVIEW_LENGTH) return content;
+        return content.substring(0, PREVIEW_LENGTH);
+    }
+
     // Getters e setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -37,4 +71,19 @@ public class Chat {
 
     public Instant getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+
+    public String getLastMessagePreview() { return lastMessagePreview; }
+    public void setLastMessagePreview(String lastMessagePreview) { this.lastMessagePreview = lastMessagePreview; }
+
+    public Long getLastMessageSenderId() { return lastMessageSenderId; }
+    public void setLastMessageSenderId(Long lastMessageSenderId) { this.lastMessageSenderId = lastMessageSenderId; }
+
+    public Instant getLastMessageAt() { return lastMessageAt; }
+    public void setLastMessageAt(Instant lastMessageAt) { this.lastMessageAt = lastMessageAt; }
+
+    public Long getLastMessageId() { return lastMessageId; }
+    public void setLastMessageId(Long lastMessageId) { this.lastMessageId = lastMessageId; }
+
+    public Long getMessageCount() { return messageCount; }
+    public void setMessageCount(Long messageCount) { this.messageCount = messageCount; }
 }
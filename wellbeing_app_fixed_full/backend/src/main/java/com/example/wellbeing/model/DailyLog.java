@@ -5,11 +5,22 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "daily_logs")
+@Table(name = "daily_logs", indexes = {
+    // ✅ Listagem por usuário, mais recentes primeiro (paginação por cursor)
+    @Index(name = "idx_daily_logs_user_created", columnList = "user_id, created_at DESC, id DESC")
+}, uniqueConstraints = {
+    // ✅ Reenvio do mesmo registro (sincronização offline) não duplica
+    @UniqueConstraint(name = "uk_daily_logs_user_idempotency", columnNames = {"user_id", "idempotency_key"})
+})
 public class DailyLog {
+
+    public static final String ID_SEQUENCE = "daily_logs_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
     
+    // ✅ Sequence com alocação em bloco: permite insert em lote via JDBC batch (IDENTITY não permite)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     
     // ✅ CORREÇÃO: Adicionar @JsonIgnore para evitar loop infinito
@@ -27,6 +38,10 @@ public class DailyLog {
     private String physicalActivity;
     private String medications;
     private String additionalNotes;
+
+    // Chave gerada pelo cliente para tornar o envio idempotente
+    @Column(name = "idempotency_key", length = 64)
+    private String idempotencyKey;
     
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
@@ -85,6 +100,9 @@ public class DailyLog {
     public String getAdditionalNotes() { return additionalNotes; }
     public void setAdditionalNotes(String additionalNotes) { this.additionalNotes = additionalNotes; }
     
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+    
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
@@ -0,0 +1,117 @@
+package com.example.wellbeing.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Resumo diário dos registros de um usuário (contagem, soma, mínimo e máximo
+ * de dor, sono e humor). Mantido pelo DailyLogService a cada gravação, para
+ * que os gráficos de tendência não precisem reler os registros brutos.
+ */
+@Entity
+@Table(name = "daily_log_day_stats")
+@IdClass(DailyLogDayStats.Key.class)
+public class DailyLogDayStats {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "log_day")
+    private LocalDate logDay;
+
+    @Column(name = "log_count", nullable = false)
+    private Integer logCount;
+
+    @Column(name = "pain_count", nullable = false)
+    private Integer painCount;
+    @Column(name = "pain_sum", nullable = false)
+    private Long painSum;
+    @Column(name = "pain_min")
+    private Integer painMin;
+    @Column(name = "pain_max")
+    private Integer painMax;
+
+    @Column(name = "sleep_count", nullable = false)
+    private Integer sleepCount;
+    @Column(name = "sleep_sum", nullable = false)
+    private Long sleepSum;
+    @Column(name = "sleep_min")
+    private Integer sleepMin;
+    @Column(name = "sleep_max")
+    private Integer sleepMax;
+
+    @Column(name = "mood_count", nullable = false)
+    private Integer moodCount;
+    @Column(name = "mood_sum", nullable = false)
+    private Long moodSum;
+    @Column(name = "mood_min")
+    private Integer moodMin;
+    @Column(name = "mood_max")
+    private Integer moodMax;
+
+    // Dias consecutivos com registro terminando neste dia
+    @Column(name = "streak_days", nullable = false)
+    private Integer streakDays = 0;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    public DailyLogDayStats() {}
+
+    // Getters
+    public Long getUserId() { return userId; }
+    public LocalDate getLogDay() { return logDay; }
+    public Integer getLogCount() { return logCount; }
+
+    public Integer getPainCount() { return painCount; }
+    public Long getPainSum() { return painSum; }
+    public Integer getPainMin() { return painMin; }
+    public Integer getPainMax() { return painMax; }
+
+    public Integer getSleepCount() { return sleepCount; }
+    public Long getSleepSum() { return sleepSum; }
+    public Integer getSleepMin() { return sleepMin; }
+    public Integer getSleepMax() { return sleepMax; }
+
+    public Integer getMoodCount() { return moodCount; }
+    public Long getMoodSum() { return moodSum; }
+    public Integer getMoodMin() { return moodMin; }
+    public Integer getMoodMax() { return moodMax; }
+
+    public Integer getStreakDays() { return streakDays; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+
+    // Chave composta (usuário, dia)
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long userId;
+        private LocalDate logDay;
+
+        public Key() {}
+
+        public Key(Long userId, LocalDate logDay) {
+            this.userId = userId;
+            this.logDay = logDay;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(userId, key.userId) && Objects.equals(logDay, key.logDay);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, logDay);
+        }
+    }
+}
@@ -4,11 +4,21 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+        // ✅ Índice composto para paginação por cursor (keyset) dentro de um chat
+        @Index(name = "idx_messages_chat_created_id", columnList = "chat_id, created_at, id")
+}, uniqueConstraints = {
+        // ✅ Reenvio da mesma mensagem (ex.: depois de um timeout) não duplica
+        @UniqueConstraint(name = "uk_messages_sender_client_id", columnNames = {"sender_id", "client_message_id"})
+})
 public class Message {
 
+    public static final String ID_SEQUENCE = "messages_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "chat_id")
@@ -26,6 +36,10 @@ public class Message {
     @Column(name = "created_at")
     private Instant createdAt = Instant.now();
 
+    // Id gerado pelo cliente, opcional: torna o reenvio idempotente
+    @Column(name = "client_message_id", length = 64)
+    private String clientMessageId;
+
     // Getters e setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -44,4 +58,7 @@ public class Message {
 
     public Instant getCreatedAt() { return createdAt; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public String getClientMessageId() { return clientMessageId; }
+    public void setClientMessageId(String clientMessageId) { this.clientMessageId = clientMessageId; }
 }
@@ -0,0 +1,60 @@
+package com.example.wellbeing.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Imagem de perfil armazenada por conteúdo: a chave é o SHA-256 dos bytes,
+ * então uploads idênticos compartilham a mesma linha. As miniaturas ficam
+ * na mesma tabela com a chave "<hash>-<tamanho>".
+ */
+@Entity
+@Table(name = "profile_images")
+public class ProfileImage {
+
+    @Id
+    @Column(name = "hash", length = 72)
+    private String hash;
+
+    @Column(name = "content_type", nullable = false, length = 100)
+    private String contentType;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @Column(name = "data", nullable = false, columnDefinition = "bytea")
+    private byte[] data;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt = Instant.now();
+
+    public static String thumbnailKey(String hash, int size) {
+        return hash + "-" + size;
+    }
+
+    public ProfileImage() {}
+
+    public ProfileImage(String hash, String contentType, byte[] data) {
+        this.hash = hash;
+        this.contentType = contentType;
+        this.data = data;
+        this.sizeBytes = (long) data.length;
+        this.createdAt = Instant.now();
+    }
+
+    // Getters e setters
+    public String getHash() { return hash; }
+    public void setHash(String hash) { this.hash = hash; }
+
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+
+    public Long getSizeBytes() { return sizeBytes; }
+    public void setSizeBytes(Long sizeBytes) { this.sizeBytes = sizeBytes; }
+
+    public byte[] getData() { return data; }
+    public void setData(byte[] data) { this.data = data; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
@@ -1,15 +1,23 @@
 package com.example.wellbeing.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 import java.time.LocalDateTime;
 import java.time.Instant;
 
+// ✅ UPDATE só com as colunas alteradas: salvar um usuário carregado antes não sobrescreve o que outro caminho gravou
 @Entity
+@DynamicUpdate
 @Table(name = "users")
 public class User {
 
+    public static final String ID_SEQUENCE = "users_seq";
+    public static final int ID_ALLOCATION_SIZE = 10;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable=false, unique=true, length=50)
@@ -18,6 +26,7 @@ public class User {
     @Column(nullable=false, unique=true, length=150)
     private String email;
 
+    @JsonIgnore
     @Column(nullable=false)
     private String password;
 
@@ -31,7 +40,8 @@ public class User {
     private LocalDateTime createdAt = LocalDateTime.now();
 
     // ✅ NOVO: Campo para último acesso (status online)
-    @Column(name = "last_seen")
+    // Gravado só pelo flush do PresenceRegistry; a entidade nunca o atualiza
+    @Column(name = "last_seen", updatable = false)
     private Instant lastSeen = Instant.now();
 
     // Campos específicos para DOCTOR
@@ -51,9 +61,10 @@ public class User {
     @Column(name = "review_count")
     private Integer reviewCount = 0;
 
-    // ✅ CORREÇÃO: Campo único para foto de perfil
-    @Column(name = "profile_picture", columnDefinition = "TEXT")
-    private String profilePicture;
+    // ✅ Foto de perfil: apenas a referência (SHA-256) para a tabela profile_images
+    @JsonIgnore
+    @Column(name = "profile_picture_id", length = 64)
+    private String profilePictureId;
 
     // ✅ NOVOS CAMPOS: Configurações de Privacidade
     @Column(name = "profile_visibility", length = 20)
@@ -71,6 +82,15 @@ public class User {
     @Column(name = "data_collection")
     private Boolean dataCollection = false;
 
+    // ✅ Versão dos tokens: incrementada no logout para invalidar JWTs emitidos antes
+    @JsonIgnore
+    @Column(name = "token_version")
+    private Long tokenVersion = 0L;
+
+    @JsonIgnore
+    @Column(name = "tokens_revoked_at")
+    private Instant tokensRevokedAt;
+
     // Construtores
     public User() {}
 
@@ -131,9 +151,24 @@ public class User {
     public Integer getReviewCount() { return reviewCount; }
     public void setReviewCount(Integer reviewCount) { this.reviewCount = reviewCount; }
 
-    // ✅ CORREÇÃO: Usar apenas profilePicture
-    public String getProfilePicture() { return profilePicture; }
-    public void setProfilePicture(String profilePicture) { this.profilePicture = profilePicture; }
+    public String getProfilePictureId() { return profilePictureId; }
+    public void setProfilePictureId(String profilePictureId) { this.profilePictureId = profilePictureId; }
+
+    // ✅ URL da foto de perfil (mantém o campo "profilePicture" no JSON)
+    public String getProfilePicture() { return avatarUrl(id, profilePictureId, AVATAR_LARGE); }
+
+    // ✅ Miniatura para cards e listas
+    public String getProfilePictureThumbnail() { return avatarUrl(id, profilePictureId, AVATAR_MEDIUM); }
+
+    public static final int AVATAR_SMALL = 48;
+    public static final int AVATAR_MEDIUM = 128;
+    public static final int AVATAR_LARGE = 512;
+
+    // A versão na query string muda a cada upload, então o navegador pode cachear para sempre
+    public static String avatarUrl(Long userId, String profilePictureId, int size) {
+        if (userId == null || profilePictureId == null) return null;
+        return "/api/users/" + userId + "/avatar?v=" + profilePictureId + "&size=" + size;
+    }
 
     // Configurações de privacidade
     public String getProfileVisibility() { return profileVisibility; }
@@ -151,12 +186,9 @@ public class User {
     public Boolean getDataCollection() { return dataCollection; }
     public void setDataCollection(Boolean dataCollection) { this.dataCollection = dataCollection; }
 
-    // ✅ NOVO: Método para verificar se está online
-    public boolean isOnline() {
-        if (lastSeen == null) return false;
-        if (!Boolean.TRUE.equals(showOnlineStatus)) return false;
-        
-        Instant fiveMinutesAgo = Instant.now().minusSeconds(300); // 5 minutos
-        return lastSeen.isAfter(fiveMinutesAgo);
-    }
+    public Long getTokenVersion() { return tokenVersion != null ? tokenVersion : 0L; }
+    public void setTokenVersion(Long tokenVersion) { this.tokenVersion = tokenVersion; }
+
+    public Instant getTokensRevokedAt() { return tokensRevokedAt; }
+    public void setTokensRevokedAt(Instant tokensRevokedAt) { this.tokensRevokedAt = tokensRevokedAt; }
 }
\ No newline at end of file
@@ -1,7 +1,12 @@
 package com.example.wellbeing.repository;
 
 import com.example.wellbeing.model.Chat;
+import com.example.wellbeing.repository.projection.ChatInboxView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,4 +16,72 @@ public interface ChatRepository extends JpaRepository<Chat, Long> {
     
     // ✅ Buscar chat específico entre paciente e médico
     Optional<Chat> findByPatientIdAndDoctorId(Long patientId, Long doctorId);
-}
\ No newline at end of file
+
+    // Os dois usuários têm um chat entre si, em qualquer papel
+    @Query("SELECT COUNT(c) > 0 FROM Chat c WHERE (c.patientId = :a AND c.doctorId = :b) " +
+            "OR (c.patientId = :b AND c.doctorId = :a)")
+    boolean existsBetween(@Param("a") Long a, @Param("b") Long b);
+
+    // ✅ Caixa de entrada em uma única consulta (chat + paciente + médico + última mensagem desnormalizada)
+    String INBOX_SELECT = "SELECT c.id AS id, c.patientId AS patientId, c.doctorId AS doctorId, " +
+            "c.title AS title, c.updatedAt AS updatedAt, " +
+            "p.fullName AS patientName, p.profilePictureId AS patientProfilePictureId, " +
+            "d.fullName AS doctorName, d.especializacao AS doctorSpecialization, d.profilePictureId AS doctorProfilePictureId, " +
+            "c.lastMessagePreview AS lastMessage, c.lastMessageSenderId AS lastMessageSenderId, " +
+            "c.lastMessageAt AS lastMessageAt, c.messageCount AS messageCount " +
+            "FROM Chat c " +
+            "LEFT JOIN User p ON p.id = c.patientId " +
+            "LEFT JOIN User d ON d.id = c.doctorId ";
+
+    @Query(INBOX_SELECT + "WHERE c.doctorId = :doctorId ORDER BY c.updatedAt DESC")
+    List<ChatInboxView> findInboxByDoctorId(@Param("doctorId") Long doctorId);
+
+    @Query(INBOX_SELECT + "WHERE c.patientId = :patientId ORDER BY c.updatedAt DESC")
+    List<ChatInboxView> findInboxByPatientId(@Param("patientId") Long patientId);
+
+    /**
+     * A mensagem (:sentAt, :messageId) é mais nova que a última gravada? Uma
+     * transação que commita depois com uma mensagem mais antiga só soma no
+     * contador, sem voltar a prévia da caixa de entrada.
+     */
+    String NEWER_THAN_LAST = "(c.lastMessageAt IS NULL OR c.lastMessageAt < :sentAt " +
+            "OR (c.lastMessageAt = :sentAt AND COALESCE(c.lastMessageId, 0) < :messageId))";
+
+    // ✅ Atualiza a última mensagem de forma atômica (sem perder incrementos concorrentes)
+    @Modifying
+    @Query("UPDATE Chat c SET " +
+            "c.lastMessagePreview = CASE WHEN " + NEWER_THAN_LAST + " THEN :preview ELSE c.lastMessagePreview END, " +
+            "c.lastMessageSenderId = CASE WHEN " + NEWER_THAN_LAST + " THEN :senderId ELSE c.lastMessageSenderId END, " +
+            "c.updatedAt = CASE WHEN " + NEWER_THAN_LAST + " THEN :sentAt ELSE c.updatedAt END, " +
+            "c.lastMessageId = CASE WHEN " + NEWER_THAN_LAST + " THEN :messageId ELSE c.lastMessageId END, " +
+            "c.lastMessageAt = CASE WHEN " + NEWER_THAN_LAST + " THEN :sentAt ELSE c.lastMessageAt END, " +
+            "c.messageCount = COALESCE(c.messageCount, 0) + :count WHERE c.id = :chatId")
+    int recordMessages(@Param("chatId") Long chatId,
+                       @Param("messageId") Long messageId,
+                       @Param("preview") String preview,
+                       @Param("senderId") Long senderId,
+                       @Param("sentAt") Instant sentAt,
+                       @Param("count") long count);
+
+    default int recordMessage(Long chatId, Long messageId, String preview, Long senderId, Instant sentAt) {
+        return recordMessages(chatId, messageId, preview, senderId, sentAt, 1);
+    }
+
+    // ✅ Backfill único das colunas desnormalizadas a partir da tabela messages
+    @Modifying
+    @Query(value = "UPDATE chats c SET " +
+            "last_message_preview = LEFT(lm.content, " + Chat.PREVIEW_LENGTH + "), " +
+            "last_message_sender_id = lm.sender_id, " +
+            "last_message_at = lm.created_at, " +
+            "last_message_id = lm.id, " +
+            "message_count = lm.cnt " +
+            "FROM (SELECT DISTINCT ON (m.chat_id) m.chat_id, m.id, m.content, m.sender_id, m.created_at, " +
+            "      COUNT(*) OVER (PARTITION BY m.chat_id) AS cnt " +
+            "      FROM messages m ORDER BY m.chat_id, m.created_at DESC, m.id DESC) lm " +
+            "WHERE lm.chat_id = c.id", nativeQuery = true)
+    int backfillLastMessage();
+
+    @Modifying
+    @Query(value = "UPDATE chats SET message_count = 0 WHERE message_count IS NULL", nativeQuery = true)
+    int backfillEmptyMessageCounts();
+}
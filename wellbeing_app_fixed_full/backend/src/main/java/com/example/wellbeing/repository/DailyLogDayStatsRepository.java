@@ -0,0 +1,133 @@
+package com.example.wellbeing.repository;
+
+import com.example.wellbeing.model.DailyLogDayStats;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface DailyLogDayStatsRepository extends JpaRepository<DailyLogDayStats, DailyLogDayStats.Key> {
+
+    // Agrega os registros brutos por (usuário, dia) e grava/atualiza o resumo
+    String UPSERT_FROM_LOGS =
+            "INSERT INTO daily_log_day_stats (user_id, log_day, log_count, " +
+            "  pain_count, pain_sum, pain_min, pain_max, " +
+            "  sleep_count, sleep_sum, sleep_min, sleep_max, " +
+            "  mood_count, mood_sum, mood_min, mood_max, updated_at) " +
+            "SELECT d.user_id, CAST(d.created_at AS date), COUNT(*), " +
+            "  COUNT(d.pain_level), COALESCE(SUM(d.pain_level), 0), MIN(d.pain_level), MAX(d.pain_level), " +
+            "  COUNT(d.sleep_quality), COALESCE(SUM(d.sleep_quality), 0), MIN(d.sleep_quality), MAX(d.sleep_quality), " +
+            "  COUNT(d.mood), COALESCE(SUM(d.mood), 0), MIN(d.mood), MAX(d.mood), now() " +
+            "FROM daily_logs d WHERE d.user_id IS NOT NULL AND d.created_at IS NOT NULL ";
+
+    String ON_CONFLICT_REPLACE =
+            "GROUP BY d.user_id, CAST(d.created_at AS date) " +
+            "ON CONFLICT (user_id, log_day) DO UPDATE SET " +
+            "  log_count = EXCLUDED.log_count, " +
+            "  pain_count = EXCLUDED.pain_count, pain_sum = EXCLUDED.pain_sum, " +
+            "  pain_min = EXCLUDED.pain_min, pain_max = EXCLUDED.pain_max, " +
+            "  sleep_count = EXCLUDED.sleep_count, sleep_sum = EXCLUDED.sleep_sum, " +
+            "  sleep_min = EXCLUDED.sleep_min, sleep_max = EXCLUDED.sleep_max, " +
+            "  mood_count = EXCLUDED.mood_count, mood_sum = EXCLUDED.mood_sum, " +
+            "  mood_min = EXCLUDED.mood_min, mood_max = EXCLUDED.mood_max, " +
+            "  updated_at = EXCLUDED.updated_at";
+
+    /**
+     * Serializa os recálculos do usuário até o fim da transação. Sem isso, duas
+     * gravações concorrentes no mesmo dia calculam o resumo cada uma com o seu
+     * snapshot, e o ON CONFLICT da segunda grava por cima um total sem o registro
+     * da primeira. Tomada em uma instrução própria, o upsert seguinte (READ
+     * COMMITTED) já enxerga o que quem segurava a trava commitou. Por usuário e
+     * não por dia porque as sequências leem e regravam os dias vizinhos.
+     */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(CAST(:userId AS bigint))", nativeQuery = true)
+    int lockUser(@Param("userId") Long userId);
+
+    // ✅ Recalcula só o dia afetado (poucas linhas, via índice user_id/created_at)
+    @Modifying
+    @Query(value = UPSERT_FROM_LOGS +
+            "AND d.user_id = :userId AND d.created_at >= :dayStart AND d.created_at < :dayEnd " +
+            ON_CONFLICT_REPLACE, nativeQuery = true)
+    int refreshDay(@Param("userId") Long userId,
+                   @Param("dayStart") LocalDateTime dayStart,
+                   @Param("dayEnd") LocalDateTime dayEnd);
+
+    // Dia que ficou sem registros depois de um delete
+    @Modifying
+    @Query(value = "DELETE FROM daily_log_day_stats s WHERE s.user_id = :userId AND s.log_day = :day " +
+            "AND NOT EXISTS (SELECT 1 FROM daily_logs d WHERE d.user_id = :userId " +
+            "  AND d.created_at >= :dayStart AND d.created_at < :dayEnd)", nativeQuery = true)
+    int deleteIfEmpty(@Param("userId") Long userId,
+                      @Param("day") LocalDate day,
+                      @Param("dayStart") LocalDateTime dayStart,
+                      @Param("dayEnd") LocalDateTime dayEnd);
+
+    /**
+     * Recalcula streak_days dos dias do usuário a partir de :day. A ilha que
+     * começa exatamente em :day continua a sequência que termina em :day - 1;
+     * as seguintes recomeçam do 1. Gravando o dia de hoje, atualiza uma linha só.
+     */
+    @Modifying
+    @Query(value = "WITH seed AS (" +
+            "  SELECT COALESCE((SELECT p.streak_days FROM daily_log_day_stats p " +
+            "    WHERE p.user_id = :userId AND p.log_day = CAST(:day AS date) - 1), 0) AS streak), " +
+            "islands AS (" +
+            "  SELECT t.log_day, t.log_day - CAST(ROW_NUMBER() OVER (ORDER BY t.log_day) AS integer) AS grp " +
+            "  FROM daily_log_day_stats t WHERE t.user_id = :userId AND t.log_day >= :day), " +
+            "runs AS (" +
+            "  SELECT log_day, ROW_NUMBER() OVER (PARTITION BY grp ORDER BY log_day) AS n, " +
+            "    MIN(log_day) OVER (PARTITION BY grp) AS run_start FROM islands) " +
+            "UPDATE daily_log_day_stats s " +
+            "SET streak_days = runs.n + CASE WHEN runs.run_start = CAST(:day AS date) THEN seed.streak ELSE 0 END " +
+            "FROM runs, seed WHERE s.user_id = :userId AND s.log_day = runs.log_day", nativeQuery = true)
+    int refreshStreaks(@Param("userId") Long userId, @Param("day") LocalDate day);
+
+    // Backfill de todos os registros existentes
+    @Modifying
+    @Query(value = UPSERT_FROM_LOGS + ON_CONFLICT_REPLACE, nativeQuery = true)
+    int rebuildAll();
+
+    // Sequências de todos os usuários (mesma conta da V5__daily_log_streaks.sql)
+    @Modifying
+    @Query(value = "UPDATE daily_log_day_stats s SET streak_days = r.n " +
+            "FROM (SELECT user_id, log_day, ROW_NUMBER() OVER (PARTITION BY user_id, grp ORDER BY log_day) AS n " +
+            "      FROM (SELECT user_id, log_day, " +
+            "              log_day - CAST(ROW_NUMBER() OVER (PARTITION BY user_id ORDER BY log_day) AS integer) AS grp " +
+            "            FROM daily_log_day_stats) g) r " +
+            "WHERE s.user_id = r.user_id AND s.log_day = r.log_day", nativeQuery = true)
+    int rebuildAllStreaks();
+
+    List<DailyLogDayStats> findByUserIdAndLogDayGreaterThanEqualOrderByLogDayDesc(Long userId, LocalDate from);
+
+    // Só quando não há registro na janela carregada (uma linha pela chave primária)
+    Optional<DailyLogDayStats> findFirstByUserIdOrderByLogDayDesc(Long userId);
+
+    // ✅ Índice (user_id, streak_days): lê uma entrada, não o histórico
+    @Query("SELECT COALESCE(MAX(s.streakDays), 0) FROM DailyLogDayStats s WHERE s.userId = :userId")
+    int findLongestStreak(@Param("userId") Long userId);
+
+    /**
+     * Médias diárias de todos os pacientes com chat com o médico, a partir de
+     * :from, em uma única consulta. Colunas: user_id, índice do dia (0 = :from),
+     * média de dor, sono e humor (null quando o dia não tem o valor).
+     * Ordenado por paciente para que cada série chegue contígua.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "SELECT s.user_id, (s.log_day - CAST(:from AS date)) AS day_index, " +
+            "  CAST(s.pain_sum AS double precision) / NULLIF(s.pain_count, 0), " +
+            "  CAST(s.sleep_sum AS double precision) / NULLIF(s.sleep_count, 0), " +
+            "  CAST(s.mood_sum AS double precision) / NULLIF(s.mood_count, 0) " +
+            "FROM daily_log_day_stats s " +
+            "WHERE s.user_id IN (SELECT c.patient_id FROM chats c WHERE c.doctor_id = :doctorId) " +
+            "  AND s.log_day >= :from " +
+            "ORDER BY s.user_id, s.log_day", nativeQuery = true)
+    Stream<Object[]> streamCohortDays(@Param("doctorId") Long doctorId, @Param("from") LocalDate from);
+}
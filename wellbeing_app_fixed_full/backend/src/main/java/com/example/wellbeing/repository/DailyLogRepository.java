@@ -1,9 +1,51 @@
 package com.example.wellbeing.repository;
 
 import com.example.wellbeing.model.DailyLog;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface DailyLogRepository extends JpaRepository<DailyLog, Long> {
     List<DailyLog> findByUserIdOrderByCreatedAtDesc(Long userId);
+
+    // ✅ Paginação por cursor sobre (user_id, created_at desc, id desc)
+    List<DailyLog> findByUserIdOrderByCreatedAtDescIdDesc(Long userId, Pageable pageable);
+
+    @Query("SELECT d FROM DailyLog d WHERE d.user.id = :userId " +
+            "AND (d.createdAt < :createdAt OR (d.createdAt = :createdAt AND d.id < :id)) " +
+            "ORDER BY d.createdAt DESC, d.id DESC")
+    List<DailyLog> findPageBefore(@Param("userId") Long userId,
+                                  @Param("createdAt") LocalDateTime createdAt,
+                                  @Param("id") Long id,
+                                  Pageable pageable);
+
+    // ✅ Último registro do usuário (uma linha só)
+    Optional<DailyLog> findFirstByUserIdOrderByCreatedAtDescIdDesc(Long userId);
+
+    // ✅ Registros já enviados com estas chaves (reenvio após timeout)
+    Optional<DailyLog> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    List<DailyLog> findByUserIdAndIdempotencyKeyIn(Long userId, Collection<String> idempotencyKeys);
+
+    /**
+     * Histórico completo do usuário para a exportação de dados, lido por
+     * cursor (fetch size) em linhas escalares: nada fica no contexto de
+     * persistência, então a memória não cresce com o tamanho do histórico.
+     * Precisa de transação aberta e deve ser fechado (try-with-resources).
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "SELECT d.id, d.created_at, d.updated_at, d.pain_level, d.sleep_quality, d.mood, " +
+            "  d.symptoms, d.triggers, d.diet_meals, d.physical_activity, d.medications, d.additional_notes " +
+            "FROM daily_logs d WHERE d.user_id = :userId " +
+            "ORDER BY d.created_at, d.id", nativeQuery = true)
+    Stream<Object[]> streamExportRows(@Param("userId") Long userId);
 }
@@ -1,14 +1,56 @@
 package com.example.wellbeing.repository;
 
 import com.example.wellbeing.model.Message;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface MessageRepository extends JpaRepository<Message, Long> {
     List<Message> findByChatIdOrderByCreatedAtAsc(Long chatId);
+
+    // ✅ Reenvio com o mesmo clientMessageId (constraint uk_messages_sender_client_id)
+    Optional<Message> findBySenderIdAndClientMessageId(Long senderId, String clientMessageId);
     
     // ✅ Buscar última mensagem do chat
     @Query("SELECT m FROM Message m WHERE m.chatId = :chatId ORDER BY m.createdAt DESC LIMIT 1")
     List<Message> findTop1ByChatIdOrderByCreatedAtDesc(Long chatId);
-}
\ No newline at end of file
+
+    // ✅ Paginação por cursor (keyset) sobre (chat_id, created_at, id)
+    List<Message> findByChatIdOrderByCreatedAtDescIdDesc(Long chatId, Pageable pageable);
+
+    @Query("SELECT m FROM Message m WHERE m.chatId = :chatId " +
+            "AND (m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)) " +
+            "ORDER BY m.createdAt DESC, m.id DESC")
+    List<Message> findPageBefore(@Param("chatId") Long chatId,
+                                 @Param("createdAt") Instant createdAt,
+                                 @Param("id") Long id,
+                                 Pageable pageable);
+
+    @Query("SELECT m FROM Message m WHERE m.chatId = :chatId " +
+            "AND (m.createdAt > :createdAt OR (m.createdAt = :createdAt AND m.id > :id)) " +
+            "ORDER BY m.createdAt ASC, m.id ASC")
+    List<Message> findPageAfter(@Param("chatId") Long chatId,
+                                @Param("createdAt") Instant createdAt,
+                                @Param("id") Long id,
+                                Pageable pageable);
+
+    /**
+     * Todas as mensagens dos chats em que o usuário participa, para a
+     * exportação de dados. Linhas escalares lidas por cursor, agrupadas por
+     * chat e em ordem cronológica (usa idx_messages_chat_created_id).
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "SELECT m.id, m.chat_id, m.sender_id, m.sender_role, m.content, m.created_at " +
+            "FROM messages m JOIN chats c ON c.id = m.chat_id " +
+            "WHERE c.patient_id = :userId OR c.doctor_id = :userId " +
+            "ORDER BY m.chat_id, m.created_at, m.id", nativeQuery = true)
+    Stream<Object[]> streamExportRows(@Param("userId") Long userId);
+}
@@ -0,0 +1,7 @@
+package com.example.wellbeing.repository;
+
+import com.example.wellbeing.model.ProfileImage;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ProfileImageRepository extends JpaRepository<ProfileImage, String> {
+}
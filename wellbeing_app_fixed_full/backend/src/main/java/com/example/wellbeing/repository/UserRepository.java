@@ -1,27 +1,83 @@
 package com.example.wellbeing.repository;
 
+import com.example.wellbeing.dto.DoctorCardView;
+import com.example.wellbeing.dto.UserProfileView;
 import com.example.wellbeing.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
+
+    // ✅ Login: username exato ou email sem diferenciar maiúsculas, numa consulta só
+    // (username tem precedência, como na busca antiga em duas etapas)
+    @Query("SELECT u FROM User u WHERE u.username = :login OR LOWER(u.email) = :email " +
+            "ORDER BY CASE WHEN u.username = :login THEN 0 ELSE 1 END LIMIT 1")
+    Optional<User> findByLogin(@Param("login") String login, @Param("email") String email);
+
+    default Optional<User> findByLogin(String login) {
+        String normalized = login.trim();
+        return findByLogin(normalized, normalized.toLowerCase(Locale.ROOT));
+    }
+
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
 
     List<User> findByRoleIgnoreCase(String role);
+
+    // ✅ Só a referência da foto, sem carregar o usuário inteiro
+    @Query("SELECT u.profilePictureId FROM User u WHERE u.id = :id AND u.profilePictureId IS NOT NULL")
+    Optional<String> findProfilePictureIdById(@Param("id") Long id);
+
+    // ✅ Revogações recentes de token (recarregadas no startup do modo stateless)
+    List<User> findByTokensRevokedAtAfter(Instant since);
+
+    // ✅ Presença: só o necessário, sem carregar a entidade
+    @Query("SELECT u.id, u.lastSeen FROM User u WHERE u.id = :id")
+    List<Object[]> findLastSeenById(@Param("id") Long id);
+
+    @Query("SELECT u.id FROM User u WHERE u.showOnlineStatus IS NULL OR u.showOnlineStatus = false")
+    List<Long> findIdsWithOnlineStatusHidden();
+
+    // Só id e nome, para rotular listas sem carregar a entidade inteira
+    @Query("SELECT u.id, u.fullName FROM User u WHERE u.id IN :ids")
+    List<Object[]> findFullNamesByIdIn(@Param("ids") Collection<Long> ids);
     
     @Query("SELECT u FROM User u WHERE u.role = 'DOCTOR' AND u.especializacao = :specialization")
     List<User> findDoctorsBySpecialization(String specialization);
     
-    @Query("SELECT u FROM User u WHERE u.role = 'DOCTOR' AND u.location LIKE %:location%")
+    // lower(location) LIKE '%...%' usa o índice trigram (migration V3)
+    @Query("SELECT u FROM User u WHERE u.role = 'DOCTOR' AND LOWER(u.location) LIKE LOWER(CONCAT('%', :location, '%'))")
     List<User> findDoctorsByLocation(@Param("location") String location);
     
+    // ✅ Projeções enxutas para os endpoints de diretório e perfil
+    String DOCTOR_CARD_SELECT = "SELECT new com.example.wellbeing.dto.DoctorCardView(" +
+            "u.id, u.fullName, u.especializacao, u.crm, u.experienceYears, u.bio, u.location, " +
+            "u.rating, u.reviewCount, u.profilePictureId) FROM User u ";
+
+    String USER_PROFILE_SELECT = "SELECT new com.example.wellbeing.dto.UserProfileView(" +
+            "u.id, u.username, u.email, u.fullName, u.role, u.createdAt, u.especializacao, u.crm, " +
+            "u.experienceYears, u.bio, u.location, u.rating, u.reviewCount, u.profileVisibility, " +
+            "u.showOnlineStatus, u.allowMessages, u.showActivity, u.dataCollection, u.profilePictureId) " +
+            "FROM User u ";
+
+    @Query(DOCTOR_CARD_SELECT + "WHERE u.role = 'DOCTOR'")
+    List<DoctorCardView> findDoctorCards();
+
+    @Query(USER_PROFILE_SELECT + "WHERE u.id = :id")
+    Optional<UserProfileView> findProfileById(@Param("id") Long id);
+
+    @Query(USER_PROFILE_SELECT + "WHERE u.id = :id AND u.role = 'DOCTOR'")
+    Optional<UserProfileView> findDoctorProfileById(@Param("id") Long id);
+
     @Query("SELECT DISTINCT u.especializacao FROM User u WHERE u.role = 'DOCTOR' AND u.especializacao IS NOT NULL")
     List<String> findDistinctSpecializations();
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.example.wellbeing.repository.projection;
+
+import java.time.Instant;
+
+/**
+ * Linha da caixa de entrada de chats: dados do chat, dos dois participantes
+ * e da última mensagem, carregados numa única consulta.
+ */
+public interface ChatInboxView {
+    Long getId();
+    Long getPatientId();
+    Long getDoctorId();
+    String getTitle();
+    Instant getUpdatedAt();
+
+    String getPatientName();
+    String getPatientProfilePictureId();
+
+    String getDoctorName();
+    String getDoctorSpecialization();
+    String getDoctorProfilePictureId();
+
+    String getLastMessage();
+    Long getLastMessageSenderId();
+    Instant getLastMessageAt();
+    Long getMessageCount();
+}
@@ -2,6 +2,7 @@ package com.example.wellbeing.security;
 
 import com.example.wellbeing.model.User;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
@@ -9,29 +10,61 @@ import java.util.Collections;
 
 public class CustomUserPrincipal implements UserDetails {
 
+    private final Long id;
+    private final String username;
+    private final String role;
+    // null quando o principal foi montado só a partir do JWT (modo stateless)
     private final User user;
 
     public CustomUserPrincipal(User user) {
+        this.id = user.getId();
+        this.username = user.getUsername();
+        this.role = user.getRole();
         this.user = user;
     }
 
+    private CustomUserPrincipal(Long id, String username, String role) {
+        this.id = id;
+        this.username = username;
+        this.role = role;
+        this.user = null;
+    }
+
+    // ✅ Principal leve, montado a partir das claims assinadas do token
+    public static CustomUserPrincipal fromClaims(Long id, String username, String role) {
+        return new CustomUserPrincipal(id, username, role);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    /** Entidade carregada do banco, ou null no modo stateless. */
     public User getUser() {
         return user;
     }
 
+    public boolean isUserLoaded() {
+        return user != null;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return Collections.singleton(() -> user.getRole());
+        return Collections.singleton(new SimpleGrantedAuthority(role != null ? role : "ROLE_USER"));
     }
 
     @Override
     public String getPassword() {
-        return user.getPassword();
+        return user != null ? user.getPassword() : null;
     }
 
     @Override
     public String getUsername() {
-        return user.getUsername();
+        return username;
     }
 
     @Override
@@ -1,5 +1,7 @@
 package com.example.wellbeing.security;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -11,7 +13,6 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
-import com.example.wellbeing.service.CustomUserDetailsService;
 
 import java.io.IOException;
 
@@ -22,7 +23,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     private JwtUtil jwtUtil;
 
     @Autowired
-    private CustomUserDetailsService userDetailsService;
+    private JwtPrincipalResolver principalResolver;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -30,20 +31,25 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
 
         final String authHeader = request.getHeader("Authorization");
-        String token = null;
+        Claims claims = null;
         String username = null;
 
-        // Extrai token JWT do cabeçalho
+        // Extrai token JWT do cabeçalho: uma única verificação por requisição (claims em cache)
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
-            username = jwtUtil.extractUsername(token);
+            try {
+                claims = jwtUtil.parseToken(authHeader.substring(7));
+                username = claims.getSubject();
+            } catch (JwtException | IllegalArgumentException e) {
+                // Token inválido ou expirado: segue sem autenticação
+            }
         }
 
         // Se o token for válido e o contexto ainda não tiver autenticação
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // Mesma checagem de versão/revogação do CONNECT do WebSocket
+            UserDetails userDetails = principalResolver.resolve(claims);
 
-            if (jwtUtil.validateToken(token, userDetails.getUsername())) {
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authToken =
                         new UsernamePasswordAuthenticationToken(
                                 userDetails, null, userDetails.getAuthorities());
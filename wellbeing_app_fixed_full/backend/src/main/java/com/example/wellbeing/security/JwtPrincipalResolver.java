@@ -0,0 +1,108 @@
+package com.example.wellbeing.security;
+
+import com.example.wellbeing.service.CustomUserDetailsService;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Transforma as claims de um JWT já verificado no principal autenticado,
+ * recusando tokens de versão antiga (logout, exclusão da conta). Usado pela
+ * API REST (JwtAuthFilter) e pelo CONNECT do WebSocket, para que os dois
+ * aceitem exatamente os mesmos tokens.
+ *
+ * Tokens sem a claim de versão (emitidos antes dela existir) só valem se
+ * foram emitidos depois do último logout do usuário e até
+ * app.security.jwt.legacy-tokens-until, quando configurado.
+ */
+@Component
+public class JwtPrincipalResolver {
+
+    private final JwtUtil jwtUtil;
+    private final CustomUserDetailsService userDetailsService;
+    private final TokenRevocationCache revocationCache;
+
+    // ✅ Modo stateless: confia nas claims assinadas e não consulta o banco
+    private final boolean statelessMode;
+
+    // Depois disso tokens sem versão são recusados (null: sem data de corte)
+    private final Instant legacyTokensUntil;
+
+    public JwtPrincipalResolver(JwtUtil jwtUtil,
+                                CustomUserDetailsService userDetailsService,
+                                TokenRevocationCache revocationCache,
+                                @Value("${app.security.jwt.stateless:false}") boolean statelessMode,
+                                @Value("${app.security.jwt.legacy-tokens-until:}") String legacyTokensUntil) {
+        this.jwtUtil = jwtUtil;
+        this.userDetailsService = userDetailsService;
+        this.revocationCache = revocationCache;
+        this.statelessMode = statelessMode;
+        this.legacyTokensUntil = StringUtils.hasText(legacyTokensUntil) ? Instant.parse(legacyTokensUntil) : null;
+    }
+
+    /**
+     * Principal do token, ou null quando ele foi revogado ou não confere com
+     * o usuário. UsernameNotFoundException se o usuário não existe mais.
+     */
+    public CustomUserPrincipal resolve(Claims claims) {
+        String username = claims.getSubject();
+        if (username == null) return null;
+
+        CustomUserPrincipal principal = statelessMode ? principalFromClaims(claims, username) : null;
+        if (principal == null) {
+            principal = (CustomUserPrincipal) userDetailsService.loadUserByUsername(username);
+            if (!hasCurrentVersion(claims, principal)) {
+                return null;
+            }
+        }
+        return jwtUtil.validateClaims(claims, principal.getUsername()) ? principal : null;
+    }
+
+    /**
+     * Monta o principal só com as claims do token. Retorna null quando o token
+     * não tem id/versão (emitido antes do modo stateless) ou quando o cache de
+     * revogação está saturado; nesses casos o principal vem do banco.
+     */
+    private CustomUserPrincipal principalFromClaims(Claims claims, String username) {
+        Long userId = JwtUtil.toLong(claims.get(JwtUtil.CLAIM_USER_ID));
+        Long version = JwtUtil.toLong(claims.get(JwtUtil.CLAIM_TOKEN_VERSION));
+        if (userId == null || version == null || revocationCache.isSaturated()) {
+            return null;
+        }
+        if (revocationCache.isRevoked(userId, version)) {
+            return null;
+        }
+        return CustomUserPrincipal.fromClaims(userId, username, claims.get(JwtUtil.CLAIM_ROLE, String.class));
+    }
+
+    // No caminho com banco a versão é comparada direto com a do usuário
+    private boolean hasCurrentVersion(Claims claims, CustomUserPrincipal principal) {
+        // Conta recriada com o mesmo username não herda os tokens da antiga
+        Long userId = JwtUtil.toLong(claims.get(JwtUtil.CLAIM_USER_ID));
+        if (userId != null && !userId.equals(principal.getId())) {
+            return false;
+        }
+        Long version = JwtUtil.toLong(claims.get(JwtUtil.CLAIM_TOKEN_VERSION));
+        if (version != null) {
+            return version >= principal.getUser().getTokenVersion();
+        }
+        return isLegacyTokenStillValid(claims, principal);
+    }
+
+    // ✅ Token sem versão: recusado depois da data de corte ou se emitido antes do último logout
+    private boolean isLegacyTokenStillValid(Claims claims, CustomUserPrincipal principal) {
+        if (legacyTokensUntil != null && Instant.now().isAfter(legacyTokensUntil)) {
+            return false;
+        }
+        Instant revokedAt = principal.getUser().getTokensRevokedAt();
+        if (revokedAt == null) {
+            return true;
+        }
+        Date issuedAt = claims.getIssuedAt();
+        return issuedAt != null && issuedAt.toInstant().isAfter(revokedAt);
+    }
+}
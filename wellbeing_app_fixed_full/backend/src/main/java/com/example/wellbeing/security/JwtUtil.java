@@ -1,16 +1,24 @@
 package com.example.wellbeing.security;
 
+import com.example.wellbeing.model.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 @Component
@@ -19,6 +27,25 @@ public class JwtUtil {
     private static final String SECRET_KEY = "5A7134743777217A25432A462D4A614E645267556B58703273357638792F423F"; 
     private static final long EXPIRATION_TIME = 24 * 60 * 60 * 1000; // 24 horas
 
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
+
+    // ✅ Chave e parser calculados uma única vez (o parser do jjwt é thread-safe)
+    private final Key signingKey = buildSignInKey();
+    private final JwtParser parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+
+    // ✅ Cache limitado de claims já verificadas, indexado pelo hash do token
+    private final Map<String, CachedClaims> verifiedClaims = new ConcurrentHashMap<>();
+
+    @Value("${app.security.jwt.claims-cache-size:10000}")
+    private int claimsCacheSize = 10000;
+
+    @Value("${app.security.jwt.claims-cache-ttl-seconds:300}")
+    private long claimsCacheTtlSeconds = 300;
+
+    private record CachedClaims(Claims claims, long expiresAt) {}
+
     // ===== Extração =====
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -26,7 +53,20 @@ public class JwtUtil {
 
     public String extractRole(String token) {
         final Claims claims = extractAllClaims(token);
-        return claims.get("role", String.class);
+        return claims.get(CLAIM_ROLE, String.class);
+    }
+
+    // ✅ Claims do modo stateless (null em tokens antigos, emitidos sem eles)
+    public Long extractUserId(String token) {
+        return extractClaim(token, claims -> toLong(claims.get(CLAIM_USER_ID)));
+    }
+
+    public Long extractTokenVersion(String token) {
+        return extractClaim(token, claims -> toLong(claims.get(CLAIM_TOKEN_VERSION)));
+    }
+
+    public static Long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : null;
     }
 
     public Date extractExpiration(String token) {
@@ -39,22 +79,66 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parseToken(token);
+    }
+
+    /**
+     * Verifica assinatura e expiração uma única vez e reaproveita as claims
+     * nas chamadas seguintes para o mesmo token, até o TTL do cache ou a
+     * expiração do próprio token, o que vier primeiro.
+     */
+    public Claims parseToken(String token) {
+        String key = hash(token);
+        long now = System.currentTimeMillis();
+
+        CachedClaims cached = verifiedClaims.get(key);
+        if (cached != null) {
+            if (cached.expiresAt() > now) {
+                return cached.claims();
+            }
+            verifiedClaims.remove(key, cached);
+        }
+
+        Claims claims = parser.parseClaimsJws(token).getBody();
+
+        long expiresAt = now + claimsCacheTtlSeconds * 1000;
+        if (claims.getExpiration() != null) {
+            expiresAt = Math.min(expiresAt, claims.getExpiration().getTime());
+        }
+        if (verifiedClaims.size() >= claimsCacheSize) {
+            evict(now);
+        }
+        verifiedClaims.put(key, new CachedClaims(claims, expiresAt));
+        return claims;
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private void evict(long now) {
+        verifiedClaims.entrySet().removeIf(e -> e.getValue().expiresAt() <= now);
+        // Ainda cheio: descarta entradas arbitrárias até liberar espaço
+        var it = verifiedClaims.keySet().iterator();
+        while (verifiedClaims.size() >= claimsCacheSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
     }
 
     // ===== Validação =====
     public boolean validateToken(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username) && !isTokenExpired(token));
+        final Claims claims = parseToken(token);
+        return validateClaims(claims, username);
+    }
+
+    public boolean validateClaims(Claims claims, String username) {
+        return claims.getSubject().equals(username) && !claims.getExpiration().before(new Date());
     }
 
     // ===== Geração =====
@@ -66,21 +150,34 @@ public class JwtUtil {
     // ✅ Novo método: gera token com role
     public String generateTokenWithRole(String username, String role) {
         Map<String, Object> claims = new HashMap<>();
-        claims.put("role", role);
+        claims.put(CLAIM_ROLE, role);
         return createToken(claims, username);
     }
 
+    // ✅ Token completo: role + id do usuário + versão, permite autenticar sem consultar o banco
+    public String generateToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_ROLE, user.getRole());
+        claims.put(CLAIM_USER_ID, user.getId());
+        claims.put(CLAIM_TOKEN_VERSION, user.getTokenVersion());
+        return createToken(claims, user.getUsername());
+    }
+
+    public long getExpirationMillis() {
+        return EXPIRATION_TIME;
+    }
+
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    private Key getSignInKey() {
+    private static Key buildSignInKey() {
         byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
         return Keys.hmacShaKeyFor(keyBytes);
     }
@@ -2,6 +2,7 @@ package com.example.wellbeing.security;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -37,6 +38,7 @@ public class SecurityConfig {
                     "/ws/**",         // websocket endpoint
                     "/error"          // handler default
                 ).permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/users/*/avatar").permitAll() // usado em <img src>
                 .anyRequest().authenticated()
             )
             .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
@@ -0,0 +1,138 @@
+package com.example.wellbeing.security;
+
+import com.example.wellbeing.model.User;
+import com.example.wellbeing.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache limitado das versões de token revogadas, usado pelo modo JWT stateless.
+ *
+ * Guarda, por usuário, a menor versão de token ainda aceita. Uma entrada só
+ * precisa viver enquanto um token antigo ainda poderia estar válido, então
+ * expira junto com o tempo de vida do JWT. Se o limite de entradas for
+ * atingido o cache se declara saturado e o filtro volta a consultar o banco,
+ * nunca aceitando um token revogado por falta de espaço.
+ *
+ * Com vários nós cada um tem o seu cache: a cada
+ * app.security.jwt.revocation-refresh-ms o cache relê do banco as revogações
+ * feitas desde a última leitura (logouts em users.tokens_revoked_at, contas
+ * excluídas em deleted_accounts). Um token revogado em outro nó vale no
+ * máximo por esse intervalo.
+ */
+@Component
+public class TokenRevocationCache {
+
+    /** Versão mínima usada para contas excluídas: nenhum token é aceito. */
+    public static final long ALL_VERSIONS = Long.MAX_VALUE;
+
+    // Folga para relógios entre nós e transações que commitam depois da leitura
+    private static final long REFRESH_OVERLAP_MILLIS = 60_000;
+
+    private final Map<Long, Entry> revoked = new ConcurrentHashMap<>();
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    private volatile Instant lastRefresh;
+
+    private record Entry(long minValidVersion, long expiresAt) {}
+
+    public TokenRevocationCache(UserRepository userRepository,
+                                JdbcTemplate jdbcTemplate,
+                                JwtUtil jwtUtil,
+                                @Value("${app.security.jwt.revocation-cache-size:10000}") int maxEntries) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlMillis = jwtUtil.getExpirationMillis();
+        this.maxEntries = maxEntries;
+    }
+
+    // Recarrega revogações recentes para que um restart não reabilite tokens de logout
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        load(Instant.now().minusMillis(ttlMillis));
+    }
+
+    // ✅ Revogações feitas nos outros nós desde a última leitura
+    @Scheduled(fixedDelayString = "${app.security.jwt.revocation-refresh-ms:30000}",
+            initialDelayString = "${app.security.jwt.revocation-refresh-ms:30000}")
+    public void refresh() {
+        Instant previous = lastRefresh;
+        Instant oldest = Instant.now().minusMillis(ttlMillis);
+        Instant since = previous == null ? oldest : previous.minusMillis(REFRESH_OVERLAP_MILLIS);
+        load(since.isBefore(oldest) ? oldest : since);
+        // Marcas de contas excluídas só importam enquanto os tokens delas não expiram
+        jdbcTemplate.update("DELETE FROM deleted_accounts WHERE deleted_at < ?", Timestamp.from(oldest));
+    }
+
+    private void load(Instant since) {
+        Instant startedAt = Instant.now();
+        for (User user : userRepository.findByTokensRevokedAtAfter(since)) {
+            put(user.getId(), user.getTokenVersion(), user.getTokensRevokedAt());
+        }
+        jdbcTemplate.query("SELECT user_id, deleted_at FROM deleted_accounts WHERE deleted_at > ?",
+                (RowCallbackHandler) rs -> put(rs.getLong("user_id"), ALL_VERSIONS,
+                        rs.getTimestamp("deleted_at").toInstant()),
+                Timestamp.from(since));
+        lastRefresh = startedAt;
+    }
+
+    private void put(Long userId, long minValidVersion, Instant revokedAt) {
+        long expiresAt = revokedAt.toEpochMilli() + ttlMillis;
+        revoked.merge(userId, new Entry(minValidVersion, expiresAt),
+                (old, fresh) -> new Entry(Math.max(old.minValidVersion(), fresh.minValidVersion()),
+                        Math.max(old.expiresAt(), fresh.expiresAt())));
+    }
+
+    /**
+     * Conta excluída: nenhum token dela vale mais, neste nó na hora e nos
+     * outros na próxima releitura (a linha em users já não existe).
+     */
+    public void revokeDeletedAccount(Long userId) {
+        jdbcTemplate.update("INSERT INTO deleted_accounts (user_id, deleted_at) VALUES (?, ?) " +
+                "ON CONFLICT (user_id) DO UPDATE SET deleted_at = EXCLUDED.deleted_at",
+                userId, Timestamp.from(Instant.now()));
+        revoke(userId, ALL_VERSIONS);
+    }
+
+    /** Invalida todos os tokens do usuário com versão menor que minValidVersion. */
+    public void revoke(Long userId, long minValidVersion) {
+        long now = System.currentTimeMillis();
+        if (revoked.size() >= maxEntries) {
+            purgeExpired(now);
+        }
+        revoked.merge(userId, new Entry(minValidVersion, now + ttlMillis),
+                (old, fresh) -> new Entry(Math.max(old.minValidVersion(), fresh.minValidVersion()), fresh.expiresAt()));
+    }
+
+    public boolean isRevoked(Long userId, long tokenVersion) {
+        Entry entry = revoked.get(userId);
+        if (entry == null) return false;
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            revoked.remove(userId, entry);
+            return false;
+        }
+        return tokenVersion < entry.minValidVersion();
+    }
+
+    /** Quando cheio, o modo stateless não é confiável e o filtro deve consultar o banco. */
+    public boolean isSaturated() {
+        return revoked.size() > maxEntries;
+    }
+
+    private void purgeExpired(long now) {
+        revoked.entrySet().removeIf(e -> e.getValue().expiresAt() < now);
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.wellbeing.security;
+
+import com.example.wellbeing.model.Chat;
+import com.example.wellbeing.repository.ChatRepository;
+import com.example.wellbeing.service.PresenceRegistry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Autentica o frame CONNECT com o mesmo JWT da API REST e só permite
+ * assinar o tópico de um chat aos seus dois participantes, e o tópico de
+ * presença de um usuário a quem tem chat com ele.
+ *
+ * Tudo o que não estiver liberado aqui é negado: assinaturas só em
+ * /topic/chats/{id}, /topic/presence/{id} e /user/queue/**, sem curingas
+ * nem variáveis no destino, e envios (SEND) só para /app/**. O cliente
+ * nunca publica direto no broker (/topic, /queue).
+ */
+@Component
+public class WebSocketAuthInterceptor implements ChannelInterceptor {
+
+    public static final String USER_ID_ATTRIBUTE = "userId";
+
+    // ✅ Só o id numérico exato: nada de /topic/chats/* ou /topic/chats/**
+    private static final Pattern CHAT_TOPIC = Pattern.compile("/topic/chats/(\\d{1,18})");
+    private static final Pattern PRESENCE_TOPIC = Pattern.compile("/topic/presence/(\\d{1,18})");
+    private static final String USER_QUEUE_PREFIX = "/user/queue/";
+    private static final String APP_PREFIX = "/app/";
+
+    private final JwtUtil jwtUtil;
+    private final JwtPrincipalResolver principalResolver;
+    private final ChatRepository chatRepository;
+    private final PresenceRegistry presenceRegistry;
+
+    public WebSocketAuthInterceptor(JwtUtil jwtUtil, JwtPrincipalResolver principalResolver,
+                                    ChatRepository chatRepository, PresenceRegistry presenceRegistry) {
+        this.jwtUtil = jwtUtil;
+        this.principalResolver = principalResolver;
+        this.chatRepository = chatRepository;
+        this.presenceRegistry = presenceRegistry;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            authenticate(accessor);
+        } else if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            authorizeSubscription(accessor);
+        } else if (StompCommand.SEND.equals(accessor.getCommand())) {
+            authorizeSend(accessor);
+        }
+        return message;
+    }
+
+    private void authenticate(StompHeaderAccessor accessor) {
+        String authHeader = accessor.getFirstNativeHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            throw new AccessDeniedException("Token ausente");
+        }
+
+        Claims claims;
+        try {
+            claims = jwtUtil.parseToken(authHeader.substring(7));
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new AccessDeniedException("Token inválido");
+        }
+
+        // ✅ Mesma checagem da API REST: token de versão antiga (logout) não conecta
+        CustomUserPrincipal principal;
+        try {
+            principal = principalResolver.resolve(claims);
+        } catch (UsernameNotFoundException e) {
+            throw new AccessDeniedException("Usuário não encontrado");
+        }
+        if (principal == null) {
+            throw new AccessDeniedException("Token inválido ou revogado");
+        }
+
+        // O id fica na sessão para as assinaturas
+        Map<String, Object> session = accessor.getSessionAttributes();
+        if (session != null) {
+            session.put(USER_ID_ATTRIBUTE, principal.getId());
+        }
+
+        // Conectar conta como atividade
+        presenceRegistry.touch(principal.getId());
+
+        accessor.setUser(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    private void authorizeSubscription(StompHeaderAccessor accessor) {
+        Long userId = currentUserId(accessor);
+        String destination = requireLiteralDestination(accessor);
+
+        Matcher chatTopic = CHAT_TOPIC.matcher(destination);
+        if (chatTopic.matches()) {
+            Chat chat = chatRepository.findById(Long.valueOf(chatTopic.group(1)))
+                    .orElseThrow(() -> new AccessDeniedException("Chat não encontrado"));
+            if (!isParticipant(chat, userId)) {
+                throw new AccessDeniedException("Acesso negado a este chat");
+            }
+            return;
+        }
+        Matcher presenceTopic = PRESENCE_TOPIC.matcher(destination);
+        if (presenceTopic.matches()) {
+            authorizePresenceSubscription(userId, Long.valueOf(presenceTopic.group(1)));
+            return;
+        }
+        // Filas do próprio usuário: o broker resolve /user/queue/... só para a sessão dele
+        if (destination.startsWith(USER_QUEUE_PREFIX)) {
+            return;
+        }
+        throw new AccessDeniedException("Destino não permitido: " + destination);
+    }
+
+    // ✅ Cliente só envia para os @MessageMapping (/app/**), nunca direto para /topic ou /queue
+    private void authorizeSend(StompHeaderAccessor accessor) {
+        currentUserId(accessor);
+        String destination = requireLiteralDestination(accessor);
+        if (!destination.startsWith(APP_PREFIX)) {
+            throw new AccessDeniedException("Destino não permitido: " + destination);
+        }
+    }
+
+    // Curingas (*, **), variáveis ({id}) e ".." fariam um destino valer por vários
+    private static String requireLiteralDestination(StompHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        if (destination == null || destination.isEmpty()) {
+            throw new AccessDeniedException("Destino ausente");
+        }
+        if (destination.contains("*") || destination.contains("{") || destination.contains("..")) {
+            throw new AccessDeniedException("Destino inválido: " + destination);
+        }
+        return destination;
+    }
+
+    // Própria presença, ou a de quem tem chat com o usuário
+    private void authorizePresenceSubscription(Long userId, Long targetId) {
+        if (!userId.equals(targetId) && !chatRepository.existsBetween(userId, targetId)) {
+            throw new AccessDeniedException("Acesso negado à presença deste usuário");
+        }
+    }
+
+    public static Long currentUserId(SimpMessageHeaderAccessor accessor) {
+        Map<String, Object> session = accessor.getSessionAttributes();
+        Object userId = session != null ? session.get(USER_ID_ATTRIBUTE) : null;
+        if (!(userId instanceof Long)) {
+            throw new AccessDeniedException("Sessão não autenticada");
+        }
+        return (Long) userId;
+    }
+
+    public static boolean isParticipant(Chat chat, Long userId) {
+        return userId.equals(chat.getPatientId()) || userId.equals(chat.getDoctorId());
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.repository.ChatRepository;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Job único que preenche as colunas de última mensagem dos chats já existentes.
+ * Ativar com app.chats.backfill-last-message=true e desativar depois da execução.
+ */
+@Service
+@ConditionalOnProperty(name = "app.chats.backfill-last-message", havingValue = "true")
+public class ChatBackfillService implements ApplicationRunner {
+
+    private final ChatRepository chatRepository;
+
+    public ChatBackfillService(ChatRepository chatRepository) {
+        this.chatRepository = chatRepository;
+    }
+
+    @Override
+    @Transactional
+    public void run(ApplicationArguments args) {
+        int updated = chatRepository.backfillLastMessage();
+        int empty = chatRepository.backfillEmptyMessageCounts();
+        System.out.println("✅ Backfill de chats concluído: " + updated + " com mensagens, " + empty + " vazios");
+    }
+}
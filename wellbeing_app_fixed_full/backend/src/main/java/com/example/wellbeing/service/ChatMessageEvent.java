@@ -0,0 +1,8 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.dto.MessageResponse;
+
+/**
+ * Evento publicado quando uma mensagem de chat é persistida.
+ */
+public record ChatMessageEvent(Long chatId, MessageResponse message) {}
@@ -0,0 +1,27 @@
+package com.example.wellbeing.service;
+
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Envia as mensagens novas para o tópico STOMP do chat somente depois do commit,
+ * para que nenhum cliente receba uma mensagem que foi revertida.
+ */
+@Service
+public class ChatMessagePublisher {
+
+    public static final String CHAT_TOPIC_PREFIX = "/topic/chats/";
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    public ChatMessagePublisher(SimpMessagingTemplate messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onMessage(ChatMessageEvent event) {
+        messagingTemplate.convertAndSend(CHAT_TOPIC_PREFIX + event.chatId(), event.message());
+    }
+}
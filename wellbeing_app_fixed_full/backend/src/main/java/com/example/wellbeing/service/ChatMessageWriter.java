@@ -0,0 +1,269 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.dto.MessageResponse;
+import com.example.wellbeing.model.Chat;
+import com.example.wellbeing.model.Message;
+import com.example.wellbeing.model.User;
+import com.example.wellbeing.repository.ChatRepository;
+import com.example.wellbeing.repository.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Gravação das mensagens de chat: insert da mensagem + atualização da última
+ * mensagem do chat, na mesma transação, e resposta só depois do commit.
+ *
+ * Com app.chat.group-commit.enabled=true as mensagens que chegam ao mesmo
+ * tempo são agrupadas por uma única thread de escrita: um commit e um insert
+ * em lote por grupo, e um único UPDATE por chat (a última mensagem do grupo
+ * com o contador somado). A fila é FIFO e os ids saem em ordem de chegada,
+ * então a ordem dentro de cada chat é preservada. Com a fila cheia a
+ * mensagem é gravada direto, como no modo padrão.
+ *
+ * O created_at é sempre carimbado aqui, dentro da transação e logo antes do
+ * insert, nos dois caminhos: o horário de quem montou a mensagem não vale,
+ * senão a ordem (created_at, id) do cursor podia discordar da ordem dos ids.
+ *
+ * Se a transação do grupo falha, cada mensagem é regravada sozinha pelo
+ * caminho direto: só a mensagem com problema recebe o erro. Quando a
+ * confirmação demora mais que app.chat.group-commit.ack-timeout-ms a
+ * mensagem ainda pode ser gravada, então write lança TimeoutException
+ * (resultado pendente, não erro); com clientMessageId o reenvio devolve a
+ * mensagem já gravada em vez de duplicá-la.
+ */
+@Service
+public class ChatMessageWriter {
+
+    private static final String CLIENT_ID_CONSTRAINT = "uk_messages_sender_client_id";
+
+    private record PendingMessage(Message message, User sender, CompletableFuture<MessageResponse> ack) {}
+
+    // Última mensagem e quantidade por chat dentro de um grupo
+    private static final class ChatUpdate {
+        Message last;
+        long count;
+    }
+
+    private final MessageRepository messageRepository;
+    private final ChatRepository chatRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean groupCommit;
+    private final int maxBatchSize;
+    private final long lingerMillis;
+    private final long ackTimeoutMillis;
+    private final BlockingQueue<PendingMessage> queue;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public ChatMessageWriter(MessageRepository messageRepository,
+                             ChatRepository chatRepository,
+                             ApplicationEventPublisher eventPublisher,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${app.chat.group-commit.enabled:false}") boolean groupCommit,
+                             @Value("${app.chat.group-commit.max-batch-size:100}") int maxBatchSize,
+                             @Value("${app.chat.group-commit.linger-ms:2}") long lingerMillis,
+                             @Value("${app.chat.group-commit.queue-capacity:10000}") int queueCapacity,
+                             @Value("${app.chat.group-commit.ack-timeout-ms:5000}") long ackTimeoutMillis) {
+        this.messageRepository = messageRepository;
+        this.chatRepository = chatRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.groupCommit = groupCommit;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerMillis = lingerMillis;
+        this.ackTimeoutMillis = ackTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!groupCommit) return;
+        running = true;
+        writerThread = new Thread(this::writeLoop, "chat-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        System.out.println("✉️ Gravação de mensagens em grupo ativada (até " + maxBatchSize + " por commit)");
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writerThread == null) return;
+        running = false;
+        writerThread.interrupt();
+        writerThread.join(ackTimeoutMillis);
+    }
+
+    /**
+     * Grava a mensagem e devolve a resposta já confirmada no banco. A entrega
+     * em tempo real (ChatMessageEvent) é publicada dentro da transação e sai
+     * depois do commit. TimeoutException: gravação ainda pendente.
+     */
+    public MessageResponse write(Message message, User sender) throws Exception {
+        // ✅ Reenvio de uma mensagem já gravada: devolve a original
+        if (message.getClientMessageId() != null) {
+            Optional<Message> existing = messageRepository.findBySenderIdAndClientMessageId(
+                    message.getSenderId(), message.getClientMessageId());
+            if (existing.isPresent()) {
+                return MessageResponse.of(existing.get(), sender);
+            }
+        }
+        if (!groupCommit) {
+            return writeDirect(message, sender);
+        }
+
+        PendingMessage pending = new PendingMessage(message, sender, new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            return writeDirect(message, sender);
+        }
+        try {
+            return pending.ack().get(ackTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } catch (TimeoutException e) {
+            // O grupo ainda pode ser gravado depois: pendente, não falha
+            throw new TimeoutException("Mensagem ainda sendo gravada; reenvie com o mesmo clientMessageId para confirmar");
+        }
+    }
+
+    private MessageResponse writeDirect(Message message, User sender) {
+        try {
+            return insertDirect(message, sender);
+        } catch (DataIntegrityViolationException e) {
+            if (message.getClientMessageId() == null || !isClientIdConflict(e)) throw e;
+            // ✅ Reenvio simultâneo com o mesmo clientMessageId: o outro gravou primeiro
+            return messageRepository.findBySenderIdAndClientMessageId(message.getSenderId(), message.getClientMessageId())
+                    .map(existing -> MessageResponse.of(existing, sender))
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private MessageResponse insertDirect(Message message, User sender) {
+        return transactionTemplate.execute(status -> {
+            message.setCreatedAt(Instant.now());
+            Message saved = messageRepository.save(message);
+            // ✅ Atualiza updatedAt e a última mensagem desnormalizada na mesma transação
+            chatRepository.recordMessage(saved.getChatId(), saved.getId(), Chat.toPreview(saved.getContent()),
+                    saved.getSenderId(), saved.getCreatedAt());
+            MessageResponse response = MessageResponse.of(saved, sender);
+            eventPublisher.publishEvent(new ChatMessageEvent(saved.getChatId(), response));
+            return response;
+        });
+    }
+
+    private void writeLoop() {
+        List<PendingMessage> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                // O que chegou enquanto o grupo anterior gravava entra direto; depois espera um pouco mais
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                if (lingerMillis > 0 && batch.size() < maxBatchSize) {
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                    while (batch.size() < maxBatchSize) {
+                        PendingMessage next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (next == null) break;
+                        batch.add(next);
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                    }
+                }
+                writeBatch(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                // O grupo em montagem não foi gravado: falha junto com o resto da fila abaixo
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                System.err.println("Erro ao gravar grupo de " + batch.size() + " mensagens, regravando uma a uma: "
+                        + e.getMessage());
+                writeEach(batch);
+                batch.clear();
+            }
+        }
+
+        // Encerrando: quem ainda está na fila recebe erro em vez de esperar o timeout
+        queue.drainTo(batch);
+        IllegalStateException stopped = new IllegalStateException("Servidor encerrando, mensagem não gravada");
+        batch.forEach(p -> p.ack().completeExceptionally(stopped));
+    }
+
+    // ✅ Grupo desfeito pelo rollback: cada mensagem em sua própria transação, só a ruim falha
+    private void writeEach(List<PendingMessage> batch) {
+        for (PendingMessage pending : batch) {
+            // O id do sequence usado no grupo foi junto com o rollback
+            pending.message().setId(null);
+            try {
+                pending.ack().complete(writeDirect(pending.message(), pending.sender()));
+            } catch (Exception e) {
+                pending.ack().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingMessage> batch) {
+        List<MessageResponse> responses = transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<Message> messages = new ArrayList<>(batch.size());
+            for (PendingMessage pending : batch) {
+                // Mesmo horário para o grupo: a ordem de chegada fica no id (cursor usa created_at, id)
+                pending.message().setCreatedAt(now);
+                messages.add(pending.message());
+            }
+            List<Message> saved = messageRepository.saveAll(messages);
+            messageRepository.flush();
+
+            // ✅ Um UPDATE por chat, em ordem de id (sempre a mesma ordem de locks)
+            Map<Long, ChatUpdate> updates = new TreeMap<>();
+            for (Message message : saved) {
+                ChatUpdate update = updates.computeIfAbsent(message.getChatId(), id -> new ChatUpdate());
+                update.last = message;
+                update.count++;
+            }
+            updates.forEach((chatId, update) -> chatRepository.recordMessages(chatId, update.last.getId(),
+                    Chat.toPreview(update.last.getContent()), update.last.getSenderId(),
+                    update.last.getCreatedAt(), update.count));
+
+            List<MessageResponse> result = new ArrayList<>(saved.size());
+            for (int i = 0; i < saved.size(); i++) {
+                MessageResponse response = MessageResponse.of(saved.get(i), batch.get(i).sender());
+                eventPublisher.publishEvent(new ChatMessageEvent(response.getChatId(), response));
+                result.add(response);
+            }
+            return result;
+        });
+
+        // ✅ Confirmação só depois do commit
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).ack().complete(responses.get(i));
+        }
+    }
+
+    private static boolean isClientIdConflict(DataIntegrityViolationException e) {
+        if (e.getCause() instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+            return CLIENT_ID_CONSTRAINT.equalsIgnoreCase(violation.getConstraintName());
+        }
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.contains(CLIENT_ID_CONSTRAINT);
+    }
+}
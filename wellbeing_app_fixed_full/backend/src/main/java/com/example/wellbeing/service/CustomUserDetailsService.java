@@ -2,13 +2,11 @@ package com.example.wellbeing.service;
 
 import com.example.wellbeing.model.User;
 import com.example.wellbeing.repository.UserRepository;
+import com.example.wellbeing.security.CustomUserPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
-
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
@@ -17,16 +15,11 @@ public class CustomUserDetailsService implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String input) throws UsernameNotFoundException {
-        // Tenta encontrar pelo username primeiro
-        User user = userRepository.findByUsername(input)
-                // Se não achar, tenta pelo email
-                .orElseGet(() -> userRepository.findByEmail(input)
-                        .orElseThrow(() -> new UsernameNotFoundException("User not found: " + input)));
+        // ✅ Username ou email numa consulta só (username tem precedência)
+        User user = userRepository.findByLogin(input)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + input));
 
-        return new org.springframework.security.core.userdetails.User(
-                user.getUsername(),
-                user.getPassword(),
-                Collections.singletonList(new SimpleGrantedAuthority(user.getRole() != null ? user.getRole() : "ROLE_USER"))
-        );
+        // ✅ O próprio User fica no SecurityContext: controllers o recebem via @AuthenticationPrincipal
+        return new CustomUserPrincipal(user);
     }
 }
@@ -1,30 +1,77 @@
 package com.example.wellbeing.service;
 
+import com.example.wellbeing.dto.DailyLogBatchResult;
 import com.example.wellbeing.dto.DailyLogDTO;
 import com.example.wellbeing.model.DailyLog;
 import com.example.wellbeing.model.User;
 import com.example.wellbeing.repository.DailyLogRepository;
 import com.example.wellbeing.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Service
 public class DailyLogService {
 
+    public static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_SCORE = 10;
+    private static final String IDEMPOTENCY_CONSTRAINT = "uk_daily_logs_user_idempotency";
+    // Cada nova tentativa enxerga as chaves gravadas pelas requisições concorrentes
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private final DailyLogRepository repo;
     private final UserRepository userRepo;
+    private final DailyLogStatsService statsService;
+    private final TransactionTemplate transactionTemplate;
 
-    public DailyLogService(DailyLogRepository repo, UserRepository userRepo) {
+    public DailyLogService(DailyLogRepository repo, UserRepository userRepo, DailyLogStatsService statsService,
+                           TransactionTemplate transactionTemplate) {
         this.repo = repo;
         this.userRepo = userRepo;
+        this.statsService = statsService;
+        this.transactionTemplate = transactionTemplate;
     }
 
     public List<DailyLog> findAll() {
         return repo.findAll();
     }
 
+    // ✅ Página de registros do usuário, mais recentes primeiro; before = id do último item já exibido
+    public List<DailyLog> findPage(Long userId, Long before, int limit) {
+        Pageable pageable = PageRequest.of(0, limit);
+        if (before == null) {
+            return repo.findByUserIdOrderByCreatedAtDescIdDesc(userId, pageable);
+        }
+        DailyLog cursor = repo.findById(before)
+                .filter(d -> d.getUser() != null && userId.equals(d.getUser().getId()))
+                .orElseThrow(() -> new RuntimeException("Invalid cursor: " + before));
+        return repo.findPageBefore(userId, cursor.getCreatedAt(), cursor.getId(), pageable);
+    }
+
+    public Optional<DailyLog> findLatest(Long userId) {
+        return repo.findFirstByUserIdOrderByCreatedAtDescIdDesc(userId);
+    }
+
     public DailyLog findById(Long id) {
         return repo.findById(id)
                 .orElseThrow(() -> new RuntimeException("Daily log not found with id: " + id));
@@ -32,9 +79,129 @@ public class DailyLogService {
 
     // ⬇️ este método é o que o controller chama no POST
     public DailyLog save(DailyLogDTO dto) {
+        try {
+            return transactionTemplate.execute(status -> insert(dto));
+        } catch (DataIntegrityViolationException e) {
+            if (dto.idempotencyKey == null || !isIdempotencyConflict(e)) throw e;
+            // ✅ Reenvio simultâneo com a mesma chave: o outro gravou primeiro, devolve o registro dele
+            return repo.findByUserIdAndIdempotencyKey(dto.userId, dto.idempotencyKey).orElseThrow(() -> e);
+        }
+    }
+
+    private DailyLog insert(DailyLogDTO dto) {
         User user = userRepo.findById(dto.userId)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + dto.userId));
 
+        // ✅ Reenvio com a mesma chave devolve o registro já gravado
+        if (dto.idempotencyKey != null) {
+            Optional<DailyLog> existing = repo.findByUserIdAndIdempotencyKey(user.getId(), dto.idempotencyKey);
+            if (existing.isPresent()) {
+                return existing.get();
+            }
+        }
+
+        validate(dto);
+        DailyLog saved = repo.saveAndFlush(toEntity(dto, user));
+        // ✅ Mantém o resumo diário em dia (recalcula só o dia do registro)
+        statsService.refreshDay(user.getId(), saved.getCreatedAt());
+        return saved;
+    }
+
+    /**
+     * Grava vários registros do mesmo usuário em uma transação, com insert em
+     * lote (JDBC batch). Itens cuja idempotencyKey já existe, no banco ou
+     * repetida no próprio lote, não são gravados de novo.
+     *
+     * Se outra requisição gravar uma das chaves entre a consulta e o insert,
+     * a transação é refeita: o item passa a ser duplicado e o resto do lote
+     * é gravado normalmente.
+     */
+    public DailyLogBatchResult saveBatch(Long userId, List<DailyLogDTO> dtos) {
+        if (dtos == null || dtos.isEmpty()) {
+            throw new IllegalArgumentException("Nenhum registro enviado");
+        }
+        if (dtos.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Máximo de " + MAX_BATCH_SIZE + " registros por lote");
+        }
+        for (DailyLogDTO dto : dtos) {
+            if (dto.userId != null && !dto.userId.equals(userId)) {
+                throw new IllegalArgumentException("Registro de outro usuário no lote");
+            }
+            validate(dto);
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> insertBatch(userId, dtos));
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= MAX_BATCH_ATTEMPTS || !isIdempotencyConflict(e)) throw e;
+            }
+        }
+    }
+
+    private DailyLogBatchResult insertBatch(Long userId, List<DailyLogDTO> dtos) {
+        // Usuário já autenticado: só a referência, sem SELECT
+        User user = userRepo.getReferenceById(userId);
+
+        Set<String> keys = new TreeSet<>();
+        for (DailyLogDTO dto : dtos) {
+            if (dto.idempotencyKey != null) keys.add(dto.idempotencyKey);
+        }
+        Map<String, DailyLog> byKey = new HashMap<>();
+        if (!keys.isEmpty()) {
+            for (DailyLog existing : repo.findByUserIdAndIdempotencyKeyIn(userId, keys)) {
+                byKey.put(existing.getIdempotencyKey(), existing);
+            }
+        }
+
+        entityManager.unwrap(Session.class).setJdbcBatchSize(MAX_BATCH_SIZE);
+
+        List<DailyLog> toInsert = new ArrayList<>();
+        DailyLog[] resolved = new DailyLog[dtos.size()];
+        boolean[] duplicate = new boolean[dtos.size()];
+        for (int i = 0; i < dtos.size(); i++) {
+            DailyLogDTO dto = dtos.get(i);
+            DailyLog known = dto.idempotencyKey != null ? byKey.get(dto.idempotencyKey) : null;
+            if (known != null) {
+                resolved[i] = known;
+                duplicate[i] = true;
+                continue;
+            }
+            DailyLog entity = toEntity(dto, user);
+            toInsert.add(entity);
+            resolved[i] = entity;
+            if (dto.idempotencyKey != null) byKey.put(dto.idempotencyKey, entity);
+        }
+
+        repo.saveAll(toInsert);
+        repo.flush();
+
+        Set<LocalDate> days = new TreeSet<>();
+        for (DailyLog log : toInsert) {
+            days.add(log.getCreatedAt().toLocalDate());
+        }
+        statsService.refreshDays(userId, days);
+
+        List<DailyLogBatchResult.Item> items = new ArrayList<>(dtos.size());
+        for (int i = 0; i < dtos.size(); i++) {
+            items.add(new DailyLogBatchResult.Item(i, resolved[i].getId(), dtos.get(i).idempotencyKey, duplicate[i]));
+        }
+        System.out.println("✅ Lote de registros daily: " + toInsert.size() + " gravados, "
+                + (dtos.size() - toInsert.size()) + " duplicados");
+        return new DailyLogBatchResult(toInsert.size(), dtos.size() - toInsert.size(), items);
+    }
+
+    private static boolean isIdempotencyConflict(DataIntegrityViolationException e) {
+        if (e.getCause() instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+            return IDEMPOTENCY_CONSTRAINT.equalsIgnoreCase(violation.getConstraintName());
+        }
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.contains(IDEMPOTENCY_CONSTRAINT);
+    }
+
+    private DailyLog toEntity(DailyLogDTO dto, User user) {
+        LocalDateTime now = LocalDateTime.now();
+
         DailyLog e = new DailyLog();
         e.setUser(user);
         e.setPainLevel(dto.painLevel);
@@ -46,12 +213,29 @@ public class DailyLogService {
         e.setPhysicalActivity(dto.physicalActivity);
         e.setMedications(dto.medications);
         e.setAdditionalNotes(dto.additionalNotes);
-        e.setCreatedAt(LocalDateTime.now());
-        e.setUpdatedAt(LocalDateTime.now());
+        e.setIdempotencyKey(dto.idempotencyKey);
+        // Registro feito offline mantém o horário original (nunca no futuro)
+        e.setCreatedAt(dto.createdAt != null && dto.createdAt.isBefore(now) ? dto.createdAt : now);
+        e.setUpdatedAt(now);
+        return e;
+    }
 
-        return repo.save(e);
+    private static void validate(DailyLogDTO dto) {
+        checkScore("painLevel", dto.painLevel);
+        checkScore("sleepQuality", dto.sleepQuality);
+        checkScore("mood", dto.mood);
+        if (dto.idempotencyKey != null && (dto.idempotencyKey.isBlank() || dto.idempotencyKey.length() > 64)) {
+            throw new IllegalArgumentException("idempotencyKey inválida");
+        }
     }
 
+    private static void checkScore(String field, Integer value) {
+        if (value != null && (value < 0 || value > MAX_SCORE)) {
+            throw new IllegalArgumentException(field + " deve estar entre 0 e " + MAX_SCORE);
+        }
+    }
+
+    @Transactional
     public DailyLog update(Long id, DailyLogDTO dto) {
         DailyLog existing = findById(id);
 
@@ -66,13 +250,21 @@ public class DailyLogService {
         if (dto.additionalNotes != null) existing.setAdditionalNotes(dto.additionalNotes);
 
         existing.setUpdatedAt(LocalDateTime.now());
-        return repo.save(existing);
+        DailyLog saved = repo.saveAndFlush(existing);
+        if (saved.getUser() != null) {
+            statsService.refreshDay(saved.getUser().getId(), saved.getCreatedAt());
+        }
+        return saved;
     }
 
+    @Transactional
     public void delete(Long id) {
-        if (!repo.existsById(id)) {
-            throw new RuntimeException("Daily log not found with id: " + id);
-        }
-        repo.deleteById(id);
+        DailyLog existing = findById(id);
+        Long userId = existing.getUser() != null ? existing.getUser().getId() : null;
+        LocalDateTime createdAt = existing.getCreatedAt();
+
+        repo.delete(existing);
+        repo.flush();
+        statsService.refreshDay(userId, createdAt);
     }
 }
@@ -0,0 +1,31 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.repository.DailyLogDayStatsRepository;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Job único que monta o resumo diário a partir dos registros já existentes.
+ * Ativar com app.daily.backfill-stats=true e desativar depois da execução.
+ */
+@Service
+@ConditionalOnProperty(name = "app.daily.backfill-stats", havingValue = "true")
+public class DailyLogStatsBackfillService implements ApplicationRunner {
+
+    private final DailyLogDayStatsRepository statsRepo;
+
+    public DailyLogStatsBackfillService(DailyLogDayStatsRepository statsRepo) {
+        this.statsRepo = statsRepo;
+    }
+
+    @Override
+    @Transactional
+    public void run(ApplicationArguments args) {
+        int days = statsRepo.rebuildAll();
+        statsRepo.rebuildAllStreaks();
+        System.out.println("✅ Backfill do resumo diário concluído: " + days + " dias");
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.dto.DailyLogStatsView;
+import com.example.wellbeing.model.DailyLogDayStats;
+import com.example.wellbeing.repository.DailyLogDayStatsRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Mantém o resumo diário (daily_log_day_stats) e monta as estatísticas de
+ * tendência a partir dele. Cada gravação recalcula apenas o dia afetado;
+ * a leitura usa no máximo uma linha por dia, nunca os registros brutos.
+ */
+@Service
+public class DailyLogStatsService {
+
+    public static final int[] WINDOWS = {7, 30, 90};
+    private static final int PROFILE_DAYS = 90;
+
+    private final DailyLogDayStatsRepository statsRepo;
+
+    public DailyLogStatsService(DailyLogDayStatsRepository statsRepo) {
+        this.statsRepo = statsRepo;
+    }
+
+    // ✅ Chamado dentro da transação do DailyLogService, depois do flush; a trava do
+    // usuário vale até o commit, então gravações concorrentes se enfileiram aqui
+    @Transactional
+    public void refreshDay(Long userId, LocalDateTime createdAt) {
+        if (userId == null || createdAt == null) return;
+        LocalDate day = createdAt.toLocalDate();
+        LocalDateTime dayStart = day.atStartOfDay();
+        LocalDateTime dayEnd = day.plusDays(1).atStartOfDay();
+
+        statsRepo.lockUser(userId);
+        statsRepo.refreshDay(userId, dayStart, dayEnd);
+        statsRepo.deleteIfEmpty(userId, day, dayStart, dayEnd);
+        statsRepo.refreshStreaks(userId, day);
+    }
+
+    // Lote: cada dia afetado, e as sequências uma vez só a partir do mais antigo
+    @Transactional
+    public void refreshDays(Long userId, Collection<LocalDate> days) {
+        if (userId == null || days.isEmpty()) return;
+        statsRepo.lockUser(userId);
+        for (LocalDate day : days) {
+            LocalDateTime dayStart = day.atStartOfDay();
+            LocalDateTime dayEnd = day.plusDays(1).atStartOfDay();
+            statsRepo.refreshDay(userId, dayStart, dayEnd);
+            statsRepo.deleteIfEmpty(userId, day, dayStart, dayEnd);
+        }
+        statsRepo.refreshStreaks(userId, Collections.min(days));
+    }
+
+    @Transactional(readOnly = true)
+    public DailyLogStatsView getStats(Long userId) {
+        LocalDate today = LocalDate.now();
+        int maxWindow = WINDOWS[WINDOWS.length - 1];
+        List<DailyLogDayStats> days = statsRepo.findByUserIdAndLogDayGreaterThanEqualOrderByLogDayDesc(
+                userId, today.minusDays(Math.max(maxWindow, PROFILE_DAYS) - 1));
+
+        List<DailyLogStatsView.Window> windows = new ArrayList<>();
+        for (int size : WINDOWS) {
+            LocalDate from = today.minusDays(size - 1);
+            List<DailyLogDayStats> inWindow = days.stream()
+                    .filter(d -> !d.getLogDay().isBefore(from))
+                    .toList();
+            windows.add(new DailyLogStatsView.Window(
+                    size,
+                    inWindow.size(),
+                    inWindow.stream().mapToInt(DailyLogDayStats::getLogCount).sum(),
+                    metric(inWindow, DailyLogDayStats::getPainCount, DailyLogDayStats::getPainSum,
+                            DailyLogDayStats::getPainMin, DailyLogDayStats::getPainMax),
+                    metric(inWindow, DailyLogDayStats::getSleepCount, DailyLogDayStats::getSleepSum,
+                            DailyLogDayStats::getSleepMin, DailyLogDayStats::getSleepMax),
+                    metric(inWindow, DailyLogDayStats::getMoodCount, DailyLogDayStats::getMoodSum,
+                            DailyLogDayStats::getMoodMin, DailyLogDayStats::getMoodMax)));
+        }
+
+        // Perfil por dia da semana nos últimos PROFILE_DAYS dias
+        LocalDate profileFrom = today.minusDays(PROFILE_DAYS - 1);
+        List<DailyLogStatsView.DayOfWeekProfile> profile = new ArrayList<>();
+        for (DayOfWeek dow : DayOfWeek.values()) {
+            List<DailyLogDayStats> sameDay = days.stream()
+                    .filter(d -> !d.getLogDay().isBefore(profileFrom) && d.getLogDay().getDayOfWeek() == dow)
+                    .toList();
+            profile.add(new DailyLogStatsView.DayOfWeekProfile(
+                    dow.name(),
+                    sameDay.stream().mapToInt(DailyLogDayStats::getLogCount).sum(),
+                    average(sameDay, DailyLogDayStats::getPainCount, DailyLogDayStats::getPainSum),
+                    average(sameDay, DailyLogDayStats::getSleepCount, DailyLogDayStats::getSleepSum),
+                    average(sameDay, DailyLogDayStats::getMoodCount, DailyLogDayStats::getMoodSum)));
+        }
+
+        // Sequências: mantidas por dia em streak_days, sem reler o histórico
+        DailyLogDayStats latest = days.stream()
+                .filter(d -> !d.getLogDay().isAfter(today))
+                .findFirst()
+                .orElseGet(() -> statsRepo.findFirstByUserIdOrderByLogDayDesc(userId).orElse(null));
+        LocalDate lastLogDay = latest != null ? latest.getLogDay() : null;
+        int longestStreak = latest != null ? statsRepo.findLongestStreak(userId) : 0;
+
+        return new DailyLogStatsView(userId, lastLogDay, currentStreak(latest, today), longestStreak,
+                windows, profile);
+    }
+
+    private static DailyLogStatsView.Metric metric(List<DailyLogDayStats> days,
+                                                   Function<DailyLogDayStats, Integer> count,
+                                                   Function<DailyLogDayStats, Long> sum,
+                                                   Function<DailyLogDayStats, Integer> min,
+                                                   Function<DailyLogDayStats, Integer> max) {
+        int total = 0;
+        Integer lo = null;
+        Integer hi = null;
+        for (DailyLogDayStats d : days) {
+            total += count.apply(d);
+            Integer dayMin = min.apply(d);
+            Integer dayMax = max.apply(d);
+            if (dayMin != null && (lo == null || dayMin < lo)) lo = dayMin;
+            if (dayMax != null && (hi == null || dayMax > hi)) hi = dayMax;
+        }
+        return new DailyLogStatsView.Metric(total, average(days, count, sum), lo, hi);
+    }
+
+    private static Double average(List<DailyLogDayStats> days,
+                                  Function<DailyLogDayStats, Integer> count,
+                                  Function<DailyLogDayStats, Long> sum) {
+        long n = 0;
+        long total = 0;
+        for (DailyLogDayStats d : days) {
+            n += count.apply(d);
+            total += sum.apply(d);
+        }
+        return n == 0 ? null : Math.round(total * 100.0 / n) / 100.0;
+    }
+
+    // Dias consecutivos terminando hoje (ou ontem, se hoje ainda não houve registro)
+    static int currentStreak(DailyLogDayStats latest, LocalDate today) {
+        if (latest == null || latest.getLogDay().isBefore(today.minusDays(1))) return 0;
+        return latest.getStreakDays();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.dto.DoctorCardView;
+import com.example.wellbeing.repository.UserRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache em memória do diretório de médicos (cards e lista de especialidades).
+ * Carregado na primeira leitura e descartado a cada DoctorDirectoryChangedEvent;
+ * a lista de especialidades é derivada dos cards, sem consulta própria.
+ */
+@Service
+public class DoctorDirectoryCache {
+
+    private record Snapshot(List<DoctorCardView> cards, List<String> specializations, Instant loadedAt) {}
+
+    public record CacheStats(long hits, long misses, long invalidations, boolean loaded,
+                             int doctors, Instant loadedAt) {}
+
+    private final UserRepository userRepository;
+
+    private volatile Snapshot snapshot;
+    // Incrementada a cada invalidação: uma carga iniciada antes dela não é guardada
+    private final AtomicLong generation = new AtomicLong();
+    // Lock em vez de synchronized: a carga faz JDBC e não deve prender a thread portadora de uma thread virtual
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public DoctorDirectoryCache(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public List<DoctorCardView> getDoctorCards() {
+        return snapshot().cards();
+    }
+
+    public List<String> getSpecializations() {
+        return snapshot().specializations();
+    }
+
+    // ✅ Depois do commit de quem alterou o médico (ou na hora, fora de transação)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDirectoryChanged(DoctorDirectoryChangedEvent event) {
+        invalidate();
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+        invalidations.increment();
+    }
+
+    public CacheStats getStats() {
+        Snapshot current = snapshot;
+        return new CacheStats(hits.sum(), misses.sum(), invalidations.sum(), current != null,
+                current == null ? 0 : current.cards().size(), current == null ? null : current.loadedAt());
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            hits.increment();
+            return current;
+        }
+        loadLock.lock();
+        try {
+            current = snapshot;
+            if (current != null) {
+                hits.increment();
+                return current;
+            }
+            misses.increment();
+            long startedAt = generation.get();
+
+            List<DoctorCardView> cards = List.copyOf(userRepository.findDoctorCards());
+            List<String> specializations = cards.stream()
+                    .map(DoctorCardView::especializacao)
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .sorted()
+                    .toList();
+            Snapshot loaded = new Snapshot(cards, specializations, Instant.now());
+
+            if (generation.get() == startedAt) {
+                snapshot = loaded;
+            }
+            System.out.println("📇 Diretório de médicos carregado: " + cards.size() + " médicos");
+            return loaded;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.wellbeing.service;
+
+/**
+ * Evento publicado quando um médico é criado, alterado ou removido,
+ * invalidando o cache do diretório.
+ */
+public record DoctorDirectoryChangedEvent(Long doctorId) {}
@@ -0,0 +1,101 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.dto.DoctorCardView;
+import com.example.wellbeing.dto.DoctorSearchResult;
+import com.example.wellbeing.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Busca no diretório de médicos com filtros, ordenação e paginação.
+ * A consulta só inclui as condições dos filtros informados, para que o
+ * PostgreSQL use os índices parciais (role = 'DOCTOR') e os índices
+ * trigram de lower(full_name), lower(bio) e lower(location) (migration V3).
+ */
+@Service
+public class DoctorSearchService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 50;
+
+    // Ordenações permitidas; sempre desempata por id para a paginação ser estável
+    private static final Map<String, String> SORTS = Map.of(
+            "rating", "u.rating DESC NULLS LAST, u.id",
+            "experience", "u.experienceYears DESC NULLS LAST, u.id",
+            "reviews", "u.reviewCount DESC NULLS LAST, u.id",
+            "name", "LOWER(u.fullName) ASC, u.id"
+    );
+    private static final String DEFAULT_SORT = "rating";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional(readOnly = true)
+    public DoctorSearchResult search(String query, String specialization, String location,
+                                     Double minRating, Integer minExperience,
+                                     String sort, int page, int size) {
+        StringBuilder where = new StringBuilder("WHERE u.role = 'DOCTOR' ");
+        Map<String, Object> params = new HashMap<>();
+
+        if (hasText(query)) {
+            where.append("AND (LOWER(u.fullName) LIKE :q ESCAPE '\\' OR LOWER(u.bio) LIKE :q ESCAPE '\\' ")
+                    .append("OR LOWER(u.especializacao) LIKE :q ESCAPE '\\') ");
+            params.put("q", containsPattern(query));
+        }
+        if (hasText(specialization)) {
+            where.append("AND u.especializacao = :specialization ");
+            params.put("specialization", specialization.trim());
+        }
+        if (hasText(location)) {
+            where.append("AND LOWER(u.location) LIKE :location ESCAPE '\\' ");
+            params.put("location", containsPattern(location));
+        }
+        if (minRating != null) {
+            where.append("AND u.rating >= :minRating ");
+            params.put("minRating", minRating);
+        }
+        if (minExperience != null) {
+            where.append("AND u.experienceYears >= :minExperience ");
+            params.put("minExperience", minExperience);
+        }
+
+        String orderBy = SORTS.getOrDefault(sort == null ? DEFAULT_SORT : sort.toLowerCase(), SORTS.get(DEFAULT_SORT));
+
+        TypedQuery<DoctorCardView> select = entityManager.createQuery(
+                UserRepository.DOCTOR_CARD_SELECT + where + "ORDER BY " + orderBy, DoctorCardView.class);
+        TypedQuery<Long> count = entityManager.createQuery(
+                "SELECT COUNT(u) FROM User u " + where, Long.class);
+        params.forEach((name, value) -> {
+            select.setParameter(name, value);
+            count.setParameter(name, value);
+        });
+
+        List<DoctorCardView> items = select
+                .setFirstResult(page * size)
+                .setMaxResults(size)
+                .getResultList();
+        long total = count.getSingleResult();
+
+        return new DoctorSearchResult(items, page, size, total, (long) (page + 1) * size < total);
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    // "%termo%" em minúsculas, escapando os curingas digitados pelo usuário
+    private static String containsPattern(String value) {
+        String escaped = value.trim().toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.dto.ExportJobView;
+import com.example.wellbeing.model.User;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fila de exportações de dados: o pedido só enfileira o job no exportExecutor,
+ * que grava o ZIP (UserDataExportService) em app.export.dir. O cliente consulta
+ * o status e baixa o arquivo pronto com suporte a Range, então um download
+ * interrompido continua de onde parou.
+ *
+ * Os jobs ficam só em memória: na subida os arquivos que sobraram são
+ * apagados. Arquivos prontos (e jobs com erro) expiram depois de
+ * app.export.artifact-ttl-minutes, e cada usuário pode ter no máximo
+ * app.export.max-active-per-user jobs na fila ou rodando.
+ *
+ * Os limites globais (app.export.max-concurrent-jobs rodando e
+ * app.export.queue-capacity esperando) são aplicados aqui, e não só no pool,
+ * para valerem também com o executor de threads virtuais.
+ */
+@Service
+public class ExportJobService {
+
+    public enum Status { QUEUED, RUNNING, READY, FAILED }
+
+    private static final String ARTIFACT_SUFFIX = ".zip";
+    private static final String PARTIAL_SUFFIX = ".zip.part";
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> activeByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger activeJobs = new AtomicInteger();
+    private final Semaphore runningSlots;
+    private final int maxActiveJobs;
+
+    private final UserDataExportService exportService;
+    private final Executor exportExecutor;
+    private final Path exportDir;
+    private final Duration artifactTtl;
+    private final int maxActivePerUser;
+
+    public ExportJobService(UserDataExportService exportService,
+                            @Qualifier("exportExecutor") Executor exportExecutor,
+                            @Value("${app.export.dir:${java.io.tmpdir}/serenecare-exports}") String exportDir,
+                            @Value("${app.export.artifact-ttl-minutes:60}") long artifactTtlMinutes,
+                            @Value("${app.export.max-active-per-user:1}") int maxActivePerUser,
+                            @Value("${app.export.max-concurrent-jobs:2}") int maxConcurrentJobs,
+                            @Value("${app.export.queue-capacity:20}") int queueCapacity) {
+        this.exportService = exportService;
+        this.exportExecutor = exportExecutor;
+        this.exportDir = Paths.get(exportDir);
+        this.artifactTtl = Duration.ofMinutes(artifactTtlMinutes);
+        this.maxActivePerUser = maxActivePerUser;
+        this.runningSlots = new Semaphore(maxConcurrentJobs, true);
+        this.maxActiveJobs = maxConcurrentJobs + queueCapacity;
+    }
+
+    // Estado mutável do job; os campos voláteis são lidos pelas requisições de status
+    private static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final Long userId;
+        final Instant createdAt = Instant.now();
+        volatile Status status = Status.QUEUED;
+        volatile Instant completedAt;
+        volatile Instant expiresAt;
+        volatile Long sizeBytes;
+        volatile String error;
+
+        Job(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    @PostConstruct
+    public void prepareDirectory() throws IOException {
+        Files.createDirectories(exportDir);
+        // Jobs não sobrevivem a um restart: o que ficou no diretório é lixo
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(exportDir, "*.zip*")) {
+            for (Path file : leftovers) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Enfileira a exportação do usuário. IllegalStateException quando ele já
+     * tem o máximo de jobs ativos; RejectedExecutionException com a fila cheia.
+     */
+    public ExportJobView submit(User user) {
+        Long userId = user.getId();
+        AtomicBoolean accepted = new AtomicBoolean();
+        activeByUser.compute(userId, (id, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= maxActivePerUser) return count;
+            accepted.set(true);
+            return current + 1;
+        });
+        if (!accepted.get()) {
+            throw new IllegalStateException("Já existe uma exportação em andamento");
+        }
+        if (activeJobs.incrementAndGet() > maxActiveJobs) {
+            activeJobs.decrementAndGet();
+            release(userId);
+            throw new RejectedExecutionException("Fila de exportação cheia");
+        }
+
+        Job job = new Job(userId);
+        jobs.put(job.id, job);
+        try {
+            exportExecutor.execute(() -> run(job, user));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            activeJobs.decrementAndGet();
+            release(userId);
+            throw e;
+        }
+        System.out.println("📦 Exportação enfileirada: job " + job.id + " do usuário " + userId);
+        return toView(job);
+    }
+
+    public Optional<ExportJobView> find(String jobId, Long userId) {
+        return findJob(jobId, userId).map(this::toView);
+    }
+
+    public List<ExportJobView> list(Long userId) {
+        return jobs.values().stream()
+                .filter(job -> job.userId.equals(userId))
+                .sorted(Comparator.comparing((Job job) -> job.createdAt).reversed())
+                .map(this::toView)
+                .toList();
+    }
+
+    /** Arquivo pronto do job, se pertence ao usuário e ainda não expirou. */
+    public Optional<Path> artifact(String jobId, Long userId) {
+        return findJob(jobId, userId)
+                .filter(job -> job.status == Status.READY && job.expiresAt.isAfter(Instant.now()))
+                .map(job -> artifactPath(job.id))
+                .filter(Files::isReadable);
+    }
+
+    private Optional<Job> findJob(String jobId, Long userId) {
+        Job job = jobs.get(jobId);
+        return job != null && job.userId.equals(userId) ? Optional.of(job) : Optional.empty();
+    }
+
+    private void run(Job job, User user) {
+        Path partial = exportDir.resolve(job.id + PARTIAL_SUFFIX);
+        Status outcome;
+        boolean acquired = false;
+        try {
+            runningSlots.acquire();
+            acquired = true;
+            job.status = Status.RUNNING;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial), FILE_BUFFER_SIZE)) {
+                exportService.writeExport(user, out);
+            }
+            Path artifact = artifactPath(job.id);
+            Files.move(partial, artifact, StandardCopyOption.ATOMIC_MOVE);
+            job.sizeBytes = Files.size(artifact);
+            outcome = Status.READY;
+            System.out.println("📦 Exportação pronta: job " + job.id + " (" + job.sizeBytes + " bytes)");
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            job.error = e.getMessage();
+            outcome = Status.FAILED;
+            deleteQuietly(partial);
+            System.err.println("Erro na exportação (job " + job.id + "): " + e.getMessage());
+        } finally {
+            if (acquired) runningSlots.release();
+        }
+        // Prazos antes do status: quem vê READY sempre encontra expiresAt preenchido
+        job.completedAt = Instant.now();
+        job.expiresAt = job.completedAt.plus(artifactTtl);
+        job.status = outcome;
+        activeJobs.decrementAndGet();
+        release(job.userId);
+    }
+
+    // ✅ Remove jobs expirados e seus arquivos
+    @Scheduled(fixedDelayString = "${app.export.cleanup-interval-ms:60000}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        jobs.values().removeIf(job -> {
+            Instant expiresAt = job.expiresAt;
+            if (expiresAt == null || expiresAt.isAfter(now)) return false;
+            deleteQuietly(artifactPath(job.id));
+            return true;
+        });
+    }
+
+    private void release(Long userId) {
+        activeByUser.computeIfPresent(userId, (id, count) -> count <= 1 ? null : count - 1);
+    }
+
+    private Path artifactPath(String jobId) {
+        return exportDir.resolve(jobId + ARTIFACT_SUFFIX);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Erro ao apagar arquivo de exportação " + file + ": " + e.getMessage());
+        }
+    }
+
+    private ExportJobView toView(Job job) {
+        String downloadUrl = job.status == Status.READY
+                ? "/api/users/export-jobs/" + job.id + "/download"
+                : null;
+        return new ExportJobView(job.id, job.status.name(), job.createdAt, job.completedAt,
+                job.expiresAt, job.sizeBytes, job.error, downloadUrl);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.wellbeing.service;
+
+import java.time.Instant;
+
+/**
+ * Evento publicado quando um usuário passa de offline para online ou o contrário.
+ * É também o payload enviado em /topic/presence/{userId}.
+ */
+public record PresenceChangedEvent(Long userId, boolean online, Instant lastSeen) {}
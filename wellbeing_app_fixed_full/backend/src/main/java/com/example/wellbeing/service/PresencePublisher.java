@@ -0,0 +1,27 @@
+package com.example.wellbeing.service;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Envia as transições de presença para o tópico STOMP do usuário. Só quem
+ * tem chat com ele pode assinar (ver WebSocketAuthInterceptor), e só há
+ * envio quando o estado muda, não a cada heartbeat.
+ */
+@Service
+public class PresencePublisher {
+
+    public static final String PRESENCE_TOPIC_PREFIX = "/topic/presence/";
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    public PresencePublisher(SimpMessagingTemplate messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @EventListener
+    public void onPresenceChanged(PresenceChangedEvent event) {
+        messagingTemplate.convertAndSend(PRESENCE_TOPIC_PREFIX + event.userId(), event);
+    }
+}
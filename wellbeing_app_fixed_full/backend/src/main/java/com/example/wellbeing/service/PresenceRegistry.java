@@ -0,0 +1,177 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Presença dos usuários em memória: userId -> último acesso (System.nanoTime).
+ *
+ * Os heartbeats só atualizam o mapa; users.last_seen é gravado em lote
+ * periodicamente (app.presence.flush-interval-ms), um UPDATE por usuário
+ * que mudou, em um único batch JDBC. Quem optou por esconder o status online
+ * (show_online_status = false) fica no conjunto hidden, carregado na subida.
+ *
+ * As transições online/offline são publicadas como PresenceChangedEvent:
+ * online no primeiro heartbeat, offline na varredura periódica depois que a
+ * janela expira. Usuários ocultos nunca geram eventos.
+ */
+@Service
+public class PresenceRegistry {
+
+    public record Status(boolean online, Instant lastSeen, boolean showOnlineStatus) {}
+
+    // Usuário conhecido sem nenhum acesso registrado
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final Map<Long, Long> lastSeenNanos = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final Set<Long> hidden = ConcurrentHashMap.newKeySet();
+    // Usuários dentro da janela de online (para detectar as transições)
+    private final Set<Long> online = ConcurrentHashMap.newKeySet();
+
+    // Âncora para converter nanoTime em horário real
+    private final long anchorNanos = System.nanoTime();
+    private final long anchorMillis = System.currentTimeMillis();
+
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long onlineWindowNanos;
+
+    public PresenceRegistry(UserRepository userRepository,
+                            JdbcTemplate jdbcTemplate,
+                            ApplicationEventPublisher eventPublisher,
+                            @Value("${app.presence.online-window-seconds:300}") long onlineWindowSeconds) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.onlineWindowNanos = onlineWindowSeconds * 1_000_000_000L;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        hidden.addAll(userRepository.findIdsWithOnlineStatusHidden());
+    }
+
+    /** Heartbeat: só memória, o banco é atualizado no próximo flush. */
+    public void touch(Long userId) {
+        long now = System.nanoTime();
+        lastSeenNanos.merge(userId, now, Math::max);
+        dirty.add(userId);
+        if (online.add(userId) && !hidden.contains(userId)) {
+            publish(userId, true, now);
+        }
+    }
+
+    public void setHidden(Long userId, boolean hide) {
+        boolean changed = hide ? hidden.add(userId) : hidden.remove(userId);
+        // Para quem assina, esconder equivale a sair e mostrar a entrar
+        if (changed && online.contains(userId)) {
+            Long nanos = lastSeenNanos.get(userId);
+            publish(userId, !hide, nanos == null ? System.nanoTime() : nanos);
+        }
+    }
+
+    /**
+     * Status do usuário; na primeira consulta de alguém que ainda não passou
+     * por aqui desde a subida, lê last_seen uma vez do banco. Vazio se o
+     * usuário não existe.
+     */
+    public Optional<Status> status(Long userId) {
+        Long nanos = lastSeenNanos.get(userId);
+        if (nanos == null) {
+            List<Object[]> rows = userRepository.findLastSeenById(userId);
+            if (rows.isEmpty()) {
+                return Optional.empty();
+            }
+            Instant stored = (Instant) rows.get(0)[1];
+            nanos = lastSeenNanos.merge(userId, stored == null ? NEVER : toNanos(stored), Math::max);
+            // Ainda na janela (ex.: antes de um restart): a varredura avisa quando sair
+            if (nanos != NEVER && System.nanoTime() - nanos < onlineWindowNanos) {
+                online.add(userId);
+            }
+        }
+
+        boolean visible = !hidden.contains(userId);
+        Instant lastSeen = nanos == NEVER ? null : toInstant(nanos);
+        boolean isOnline = visible && nanos != NEVER && System.nanoTime() - nanos < onlineWindowNanos;
+        return Optional.of(new Status(isOnline, visible ? lastSeen : null, visible));
+    }
+
+    public boolean isOnline(Long userId) {
+        return status(userId).map(Status::online).orElse(false);
+    }
+
+    // ✅ Quem passou da janela sem heartbeat fica offline (um evento por transição)
+    @Scheduled(fixedDelayString = "${app.presence.sweep-interval-ms:15000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        for (Long userId : online) {
+            Long nanos = lastSeenNanos.get(userId);
+            if (nanos != null && now - nanos < onlineWindowNanos) continue;
+            if (!online.remove(userId)) continue;
+            // Heartbeat chegou durante a varredura: continua online
+            Long latest = lastSeenNanos.get(userId);
+            if (latest != null && System.nanoTime() - latest < onlineWindowNanos) {
+                online.add(userId);
+                continue;
+            }
+            if (!hidden.contains(userId)) {
+                publish(userId, false, nanos == null ? now : nanos);
+            }
+        }
+    }
+
+    private void publish(Long userId, boolean isOnline, long nanos) {
+        eventPublisher.publishEvent(new PresenceChangedEvent(userId, isOnline, toInstant(nanos)));
+    }
+
+    // ✅ Grava os últimos acessos pendentes em um único batch
+    @Scheduled(fixedDelayString = "${app.presence.flush-interval-ms:30000}")
+    public void flush() {
+        if (dirty.isEmpty()) return;
+
+        List<Object[]> batch = new ArrayList<>();
+        for (Long userId : dirty) {
+            dirty.remove(userId);
+            Long nanos = lastSeenNanos.get(userId);
+            if (nanos == null || nanos == NEVER) continue;
+            Timestamp seenAt = Timestamp.from(toInstant(nanos));
+            batch.add(new Object[]{seenAt, userId, seenAt});
+        }
+        if (batch.isEmpty()) return;
+
+        jdbcTemplate.batchUpdate(
+                "UPDATE users SET last_seen = ? WHERE id = ? AND (last_seen IS NULL OR last_seen < ?)", batch);
+        System.out.println("🟢 Presença: last_seen gravado para " + batch.size() + " usuários");
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private Instant toInstant(long nanos) {
+        return Instant.ofEpochMilli(anchorMillis + (nanos - anchorNanos) / 1_000_000L);
+    }
+
+    private long toNanos(Instant instant) {
+        return anchorNanos + (instant.toEpochMilli() - anchorMillis) * 1_000_000L;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.model.ProfileImage;
+import com.example.wellbeing.repository.ProfileImageRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+
+@Service
+public class ProfileImageService {
+
+    public static final long MAX_SIZE_BYTES = 5 * 1024 * 1024;
+
+    private final ProfileImageRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ProfileImageService(ProfileImageRepository repository, ApplicationEventPublisher eventPublisher) {
+        this.repository = repository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Grava a imagem (se ainda não existir) e devolve o hash que a identifica.
+     */
+    @Transactional
+    public String store(byte[] data, String contentType) {
+        if (contentType == null || !contentType.startsWith("image/")) {
+            throw new IllegalArgumentException("Apenas arquivos de imagem são permitidos");
+        }
+        if (data.length > MAX_SIZE_BYTES) {
+            throw new IllegalArgumentException("A imagem deve ter no máximo 5MB");
+        }
+        try {
+            ThumbnailService.requireWithinPixelLimit(data);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Imagem corrompida ou ilegível");
+        }
+
+        String hash = sha256(data);
+        if (!repository.existsById(hash)) {
+            repository.save(new ProfileImage(hash, contentType, data));
+        }
+        // Miniaturas geradas em segundo plano (ThumbnailService ignora as que já existem)
+        eventPublisher.publishEvent(new ProfileImageStoredEvent(hash));
+        return hash;
+    }
+
+    /**
+     * Aceita o formato legado "data:image/png;base64,....".
+     */
+    @Transactional
+    public String storeDataUrl(String dataUrl) {
+        if (dataUrl == null || !dataUrl.startsWith("data:image")) {
+            throw new IllegalArgumentException("Dados de imagem inválidos");
+        }
+        int comma = dataUrl.indexOf(',');
+        int semicolon = dataUrl.indexOf(';');
+        if (comma < 0 || semicolon < 0 || semicolon > comma) {
+            throw new IllegalArgumentException("Dados de imagem inválidos");
+        }
+        String contentType = dataUrl.substring("data:".length(), semicolon);
+        byte[] data = Base64.getMimeDecoder().decode(dataUrl.substring(comma + 1).getBytes(StandardCharsets.US_ASCII));
+        return store(data, contentType);
+    }
+
+    public Optional<ProfileImage> find(String hash) {
+        return repository.findById(hash);
+    }
+
+    /**
+     * Miniatura do tamanho pedido, ou a original se ela ainda não foi gerada.
+     */
+    public Optional<ProfileImage> find(String hash, Integer size) {
+        Integer thumbnail = ThumbnailService.bestSize(size);
+        if (thumbnail != null) {
+            Optional<ProfileImage> image = repository.findById(ProfileImage.thumbnailKey(hash, thumbnail));
+            if (image.isPresent()) return image;
+        }
+        return repository.findById(hash);
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+}
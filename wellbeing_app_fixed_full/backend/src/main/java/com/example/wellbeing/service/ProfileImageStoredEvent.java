@@ -0,0 +1,6 @@
+package com.example.wellbeing.service;
+
+/**
+ * Evento publicado quando uma imagem de perfil original é gravada.
+ */
+public record ProfileImageStoredEvent(String hash) {}
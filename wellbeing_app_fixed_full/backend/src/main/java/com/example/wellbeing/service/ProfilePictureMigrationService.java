@@ -0,0 +1,76 @@
+package com.example.wellbeing.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Job único que move as fotos Base64 da coluna legada users.profile_picture
+ * para a tabela profile_images, em lotes pequenos para não carregar tudo na memória.
+ * Ativar com app.users.migrate-profile-pictures=true e desativar depois da execução.
+ */
+@Service
+@ConditionalOnProperty(name = "app.users.migrate-profile-pictures", havingValue = "true")
+public class ProfilePictureMigrationService implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 20;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ProfileImageService profileImageService;
+    private final TransactionTemplate transactionTemplate;
+
+    public ProfilePictureMigrationService(ProfileImageService profileImageService, TransactionTemplate transactionTemplate) {
+        this.profileImageService = profileImageService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int migrated = 0;
+        int failed = 0;
+        long lastId = 0;
+
+        while (true) {
+            final long after = lastId;
+            @SuppressWarnings("unchecked")
+            List<Object[]> rows = entityManager.createNativeQuery(
+                            "SELECT id, profile_picture FROM users " +
+                            "WHERE profile_picture IS NOT NULL AND id > :after ORDER BY id")
+                    .setParameter("after", after)
+                    .setMaxResults(BATCH_SIZE)
+                    .getResultList();
+            if (rows.isEmpty()) break;
+
+            for (Object[] row : rows) {
+                long userId = ((Number) row[0]).longValue();
+                String dataUrl = (String) row[1];
+                lastId = userId;
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        String hash = profileImageService.storeDataUrl(dataUrl);
+                        entityManager.createNativeQuery(
+                                        "UPDATE users SET profile_picture_id = :hash, profile_picture = NULL WHERE id = :id")
+                                .setParameter("hash", hash)
+                                .setParameter("id", userId)
+                                .executeUpdate();
+                    });
+                    migrated++;
+                } catch (Exception e) {
+                    failed++;
+                    System.err.println("Falha ao migrar foto do usuário " + userId + ": " + e.getMessage());
+                }
+            }
+            entityManager.clear();
+        }
+
+        System.out.println("✅ Migração de fotos de perfil concluída: " + migrated + " migradas, " + failed + " com erro");
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.model.ProfileImage;
+import com.example.wellbeing.repository.ProfileImageRepository;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * Gera as miniaturas quadradas das fotos de perfil em segundo plano,
+ * usando apenas o ImageIO do JDK.
+ */
+@Service
+public class ThumbnailService {
+
+    /** Tamanhos gerados, em pixels (lado do quadrado). */
+    public static final int[] SIZES = {48, 128, 512};
+
+    // ✅ Acima disso a imagem nem é decodificada: um PNG de poucos KB pode declarar
+    // 50.000 x 50.000 px e pedir gigabytes de heap ("bomba" de descompressão)
+    public static final long MAX_PIXELS = 25_000_000L;
+
+    private final ProfileImageRepository repository;
+
+    public ThumbnailService(ProfileImageRepository repository) {
+        this.repository = repository;
+    }
+
+    // Depois do commit, para que a imagem original já esteja visível
+    @Async("imageExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onImageStored(ProfileImageStoredEvent event) {
+        try {
+            generate(event.hash());
+        } catch (Exception e) {
+            // Sem miniatura o endpoint de avatar continua servindo a original
+            System.err.println("Falha ao gerar miniaturas de " + event.hash() + ": " + e.getMessage());
+        }
+    }
+
+    public void generate(String hash) throws IOException {
+        Optional<ProfileImage> original = repository.findById(hash);
+        if (original.isEmpty()) return;
+
+        BufferedImage source = read(original.get().getData(), true);
+        if (source == null) return; // formato não suportado pelo ImageIO (ex.: webp)
+
+        // Recorte central quadrado, como os avatares são exibidos
+        int side = Math.min(source.getWidth(), source.getHeight());
+        BufferedImage square = source.getSubimage(
+                (source.getWidth() - side) / 2, (source.getHeight() - side) / 2, side, side);
+        boolean hasAlpha = source.getColorModel().hasAlpha();
+
+        for (int size : SIZES) {
+            String key = ProfileImage.thumbnailKey(hash, size);
+            if (repository.existsById(key)) continue;
+
+            // Nunca amplia: imagens pequenas geram a miniatura no tamanho original
+            int target = Math.min(size, side);
+            byte[] data = encode(scale(square, target, hasAlpha), hasAlpha);
+            repository.save(new ProfileImage(key, hasAlpha ? "image/png" : "image/jpeg", data));
+        }
+    }
+
+    /**
+     * Rejeita (IllegalArgumentException) imagens acima de MAX_PIXELS lendo só
+     * o cabeçalho. Formatos que o ImageIO não conhece passam sem verificação.
+     */
+    public static void requireWithinPixelLimit(byte[] data) throws IOException {
+        read(data, false);
+    }
+
+    // Largura e altura vêm do cabeçalho, antes de alocar os pixels
+    private static BufferedImage read(byte[] data, boolean decode) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) return null;
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > MAX_PIXELS) {
+                    throw new IllegalArgumentException("Imagem grande demais: " + reader.getWidth(0) + "x"
+                            + reader.getHeight(0) + " px (máximo " + MAX_PIXELS / 1_000_000 + " megapixels)");
+                }
+                return decode ? reader.read(0) : null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** Menor miniatura que cobre o tamanho pedido (null = usar a original). */
+    public static Integer bestSize(Integer requested) {
+        if (requested == null) return null;
+        for (int size : SIZES) {
+            if (size >= requested) return size;
+        }
+        return null;
+    }
+
+    private static BufferedImage scale(BufferedImage source, int size, boolean hasAlpha) {
+        BufferedImage target = new BufferedImage(size, size,
+                hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.drawImage(source, 0, 0, size, size, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private static byte[] encode(BufferedImage image, boolean hasAlpha) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, hasAlpha ? "png" : "jpg", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.model.User;
+import com.example.wellbeing.repository.DailyLogRepository;
+import com.example.wellbeing.repository.MessageRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exportação dos dados do usuário (LGPD/GDPR) em um ZIP escrito direto na
+ * saída: perfil em CSV, registros diários em CSV e mensagens dos chats em
+ * NDJSON. As linhas vêm de cursores do banco e são escritas uma a uma, então
+ * o uso de memória é o mesmo para um histórico de dias ou de anos.
+ */
+@Service
+public class UserDataExportService {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final DailyLogRepository dailyLogRepository;
+    private final MessageRepository messageRepository;
+    private final ObjectMapper objectMapper;
+
+    public UserDataExportService(DailyLogRepository dailyLogRepository,
+                                 MessageRepository messageRepository,
+                                 ObjectMapper objectMapper) {
+        this.dailyLogRepository = dailyLogRepository;
+        this.messageRepository = messageRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    // ✅ Transação só leitura: mantém os cursores abertos (fetch size só vale sem autocommit)
+    @Transactional(readOnly = true)
+    public void writeExport(User user, OutputStream out) throws IOException {
+        ZipOutputStream zipOut = new ZipOutputStream(out);
+        // O writer nunca é fechado: fechar encerraria o ZIP junto
+        Writer writer = new BufferedWriter(new OutputStreamWriter(zipOut, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+
+        zipOut.putNextEntry(new ZipEntry("dados-usuario.csv"));
+        writeProfile(user, writer);
+        writer.flush();
+        zipOut.closeEntry();
+
+        zipOut.putNextEntry(new ZipEntry("registros-diarios.csv"));
+        long logs = writeDailyLogs(user.getId(), writer);
+        writer.flush();
+        zipOut.closeEntry();
+
+        zipOut.putNextEntry(new ZipEntry("mensagens.ndjson"));
+        long messages = writeMessages(user.getId(), writer);
+        writer.flush();
+        zipOut.closeEntry();
+
+        zipOut.putNextEntry(new ZipEntry("LEIA-ME.txt"));
+        writer.write("Exportação de dados - SereneCare\n" +
+                "Usuário: " + user.getUsername() + "\n" +
+                "Data da exportação: " + LocalDateTime.now() + "\n" +
+                "Este arquivo contém os dados pessoais do usuário no sistema SereneCare.\n\n" +
+                "dados-usuario.csv: perfil e configurações de privacidade\n" +
+                "registros-diarios.csv: " + logs + " registros diários\n" +
+                "mensagens.ndjson: " + messages + " mensagens (um objeto JSON por linha)\n");
+        writer.flush();
+        zipOut.closeEntry();
+
+        zipOut.finish();
+        System.out.println("📦 Exportação de dados do usuário " + user.getId() + ": "
+                + logs + " registros, " + messages + " mensagens");
+    }
+
+    private void writeProfile(User user, Writer w) throws IOException {
+        w.write("Campo,Valor\n");
+        field(w, "ID", user.getId());
+        field(w, "Username", user.getUsername());
+        field(w, "Email", user.getEmail());
+        field(w, "Nome Completo", user.getFullName());
+        field(w, "Role", user.getRole());
+        field(w, "Data de Criação", user.getCreatedAt());
+        field(w, "Bio", user.getBio());
+        field(w, "Localização", user.getLocation());
+        field(w, "Rating", user.getRating());
+        field(w, "Contagem de Reviews", user.getReviewCount());
+
+        if ("DOCTOR".equals(user.getRole())) {
+            field(w, "Especialização", user.getEspecializacao());
+            field(w, "CRM", user.getCrm());
+            field(w, "Anos de Experiência", user.getExperienceYears());
+        }
+
+        // Configurações de privacidade
+        field(w, "Visibilidade do Perfil", user.getProfileVisibility());
+        field(w, "Mostrar Status Online", user.getShowOnlineStatus());
+        field(w, "Permitir Mensagens", user.getAllowMessages());
+        field(w, "Mostrar Atividade", user.getShowActivity());
+        field(w, "Coleta de Dados", user.getDataCollection());
+    }
+
+    private long writeDailyLogs(Long userId, Writer w) throws IOException {
+        w.write("id,created_at,updated_at,pain_level,sleep_quality,mood,symptoms,triggers," +
+                "diet_meals,physical_activity,medications,additional_notes\n");
+        long count = 0;
+        try (Stream<Object[]> rows = dailyLogRepository.streamExportRows(userId)) {
+            Iterator<Object[]> it = rows.iterator();
+            while (it.hasNext()) {
+                Object[] row = it.next();
+                for (int i = 0; i < row.length; i++) {
+                    if (i > 0) w.write(',');
+                    w.write(csv(formatValue(row[i])));
+                }
+                w.write('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private long writeMessages(Long userId, Writer w) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(w);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        long count = 0;
+        try (Stream<Object[]> rows = messageRepository.streamExportRows(userId)) {
+            Iterator<Object[]> it = rows.iterator();
+            while (it.hasNext()) {
+                Object[] row = it.next();
+                json.writeStartObject();
+                json.writeObjectField("id", row[0]);
+                json.writeObjectField("chatId", row[1]);
+                json.writeObjectField("senderId", row[2]);
+                json.writeStringField("senderRole", (String) row[3]);
+                json.writeStringField("content", (String) row[4]);
+                json.writeStringField("createdAt", formatInstant(row[5]));
+                json.writeEndObject();
+                json.writeRaw('\n');
+                count++;
+            }
+        }
+        json.flush();
+        return count;
+    }
+
+    private static void field(Writer w, String name, Object value) throws IOException {
+        w.write(csv(name));
+        w.write(',');
+        w.write(csv(value == null ? "" : String.valueOf(value)));
+        w.write('\n');
+    }
+
+    // daily_logs usa timestamp sem fuso: mantém a data/hora local como gravada
+    private static String formatValue(Object value) {
+        if (value == null) return "";
+        if (value instanceof Timestamp ts) return ts.toLocalDateTime().toString();
+        return String.valueOf(value);
+    }
+
+    // messages.created_at é timestamp with time zone: exporta o instante em UTC
+    private static String formatInstant(Object value) {
+        if (value == null) return null;
+        if (value instanceof Timestamp ts) return ts.toInstant().toString();
+        if (value instanceof OffsetDateTime odt) return odt.toInstant().toString();
+        return String.valueOf(value);
+    }
+
+    // ✅ Aspas só quando necessário (vírgula, aspas ou quebra de linha)
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
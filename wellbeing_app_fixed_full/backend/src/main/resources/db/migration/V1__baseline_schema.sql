@@ -0,0 +1,118 @@
+-- Esquema base do SereneCare, equivalente ao que o ddl-auto=update gerava.
+-- Idempotente: em bancos já criados pelo Hibernate só completa o que faltar
+-- (colunas e sequences novas) e move os ids de IDENTITY para as sequences.
+
+-- ===== Sequences (increment = allocationSize das entidades) =====
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 10;
+CREATE SEQUENCE IF NOT EXISTS chats_seq START WITH 1 INCREMENT BY 20;
+CREATE SEQUENCE IF NOT EXISTS messages_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS daily_logs_seq START WITH 1 INCREMENT BY 50;
+
+-- ===== users =====
+CREATE TABLE IF NOT EXISTS users (
+    id                 bigint       NOT NULL PRIMARY KEY,
+    username           varchar(50)  NOT NULL UNIQUE,
+    email              varchar(150) NOT NULL UNIQUE,
+    password           varchar(255) NOT NULL,
+    full_name          varchar(150),
+    role               varchar(50),
+    created_at         timestamp(6) NOT NULL,
+    last_seen          timestamp(6) with time zone,
+    especializacao     varchar(255),
+    crm                varchar(255),
+    experience_years   integer,
+    bio                text,
+    location           varchar(255),
+    rating             float(53),
+    review_count       integer,
+    profile_visibility varchar(20),
+    show_online_status boolean,
+    allow_messages     boolean,
+    show_activity      boolean,
+    data_collection    boolean
+);
+ALTER TABLE users ADD COLUMN IF NOT EXISTS profile_picture_id varchar(64);
+ALTER TABLE users ADD COLUMN IF NOT EXISTS token_version bigint;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS tokens_revoked_at timestamp(6) with time zone;
+
+-- ===== chats =====
+CREATE TABLE IF NOT EXISTS chats (
+    id         bigint NOT NULL PRIMARY KEY,
+    patient_id bigint,
+    doctor_id  bigint,
+    title      varchar(255),
+    updated_at timestamp(6) with time zone
+);
+ALTER TABLE chats ADD COLUMN IF NOT EXISTS last_message_preview varchar(255);
+ALTER TABLE chats ADD COLUMN IF NOT EXISTS last_message_sender_id bigint;
+ALTER TABLE chats ADD COLUMN IF NOT EXISTS last_message_at timestamp(6) with time zone;
+ALTER TABLE chats ADD COLUMN IF NOT EXISTS message_count bigint;
+
+-- ===== messages =====
+CREATE TABLE IF NOT EXISTS messages (
+    id          bigint NOT NULL PRIMARY KEY,
+    chat_id     bigint,
+    sender_id   bigint,
+    sender_role varchar(255),
+    content     text,
+    created_at  timestamp(6) with time zone
+);
+
+-- ===== daily_logs =====
+CREATE TABLE IF NOT EXISTS daily_logs (
+    id                bigint NOT NULL PRIMARY KEY,
+    user_id           bigint REFERENCES users (id),
+    pain_level        integer,
+    sleep_quality     integer,
+    mood              integer,
+    symptoms          varchar(255),
+    triggers          varchar(255),
+    diet_meals        varchar(255),
+    physical_activity varchar(255),
+    medications       varchar(255),
+    additional_notes  varchar(255),
+    created_at        timestamp(6),
+    updated_at        timestamp(6)
+);
+ALTER TABLE daily_logs ADD COLUMN IF NOT EXISTS idempotency_key varchar(64);
+
+-- ===== daily_log_day_stats (resumo diário, ver DailyLogStatsService) =====
+CREATE TABLE IF NOT EXISTS daily_log_day_stats (
+    user_id     bigint  NOT NULL,
+    log_day     date    NOT NULL,
+    log_count   integer NOT NULL,
+    pain_count  integer NOT NULL,
+    pain_sum    bigint  NOT NULL,
+    pain_min    integer,
+    pain_max    integer,
+    sleep_count integer NOT NULL,
+    sleep_sum   bigint  NOT NULL,
+    sleep_min   integer,
+    sleep_max   integer,
+    mood_count  integer NOT NULL,
+    mood_sum    bigint  NOT NULL,
+    mood_min    integer,
+    mood_max    integer,
+    updated_at  timestamp(6) with time zone,
+    PRIMARY KEY (user_id, log_day)
+);
+
+-- ===== profile_images (fotos por conteúdo, ver ProfileImageService) =====
+CREATE TABLE IF NOT EXISTS profile_images (
+    hash         varchar(72)  NOT NULL PRIMARY KEY,
+    content_type varchar(100) NOT NULL,
+    size_bytes   bigint       NOT NULL,
+    data         bytea        NOT NULL,
+    created_at   timestamp(6) with time zone NOT NULL
+);
+
+-- ===== Ids: de IDENTITY (bancos antigos) para as sequences =====
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE chats ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE messages ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE daily_logs ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+SELECT setval('users_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM users) + 10, (SELECT last_value FROM users_seq)));
+SELECT setval('chats_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM chats) + 20, (SELECT last_value FROM chats_seq)));
+SELECT setval('messages_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM messages) + 50, (SELECT last_value FROM messages_seq)));
+SELECT setval('daily_logs_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM daily_logs) + 50, (SELECT last_value FROM daily_logs_seq)));
@@ -0,0 +1,53 @@
+-- Índices das consultas mais frequentes e unicidade do par paciente/médico.
+
+-- ===== messages: histórico paginado por chat (findPageBefore/After, por chat_id) =====
+CREATE INDEX IF NOT EXISTS idx_messages_chat_created_id ON messages (chat_id, created_at, id);
+
+-- ===== chats: inbox do paciente e do médico, mais recentes primeiro =====
+CREATE INDEX IF NOT EXISTS idx_chats_patient_updated ON chats (patient_id, updated_at DESC);
+CREATE INDEX IF NOT EXISTS idx_chats_doctor_updated ON chats (doctor_id, updated_at DESC);
+
+-- Um único chat por par (paciente, médico). Duplicados antigos são fundidos no
+-- chat de menor id: mensagens movidas, duplicados removidos e o resumo de
+-- última mensagem recalculado para os chats que receberam mensagens.
+CREATE TEMPORARY TABLE chat_duplicates ON COMMIT DROP AS
+SELECT id, keep_id
+FROM (SELECT id, MIN(id) OVER (PARTITION BY patient_id, doctor_id) AS keep_id
+      FROM chats
+      WHERE patient_id IS NOT NULL AND doctor_id IS NOT NULL) c
+WHERE id <> keep_id;
+
+UPDATE messages m SET chat_id = d.keep_id FROM chat_duplicates d WHERE m.chat_id = d.id;
+DELETE FROM chats c USING chat_duplicates d WHERE c.id = d.id;
+
+UPDATE chats c SET
+    last_message_preview = LEFT(lm.content, 255),
+    last_message_sender_id = lm.sender_id,
+    last_message_at = lm.created_at,
+    updated_at = GREATEST(c.updated_at, lm.created_at),
+    message_count = lm.cnt
+FROM (SELECT DISTINCT ON (m.chat_id) m.chat_id, m.content, m.sender_id, m.created_at,
+             COUNT(*) OVER (PARTITION BY m.chat_id) AS cnt
+      FROM messages m
+      WHERE m.chat_id IN (SELECT keep_id FROM chat_duplicates)
+      ORDER BY m.chat_id, m.created_at DESC, m.id DESC) lm
+WHERE c.id = lm.chat_id;
+
+ALTER TABLE chats ADD CONSTRAINT uk_chats_patient_doctor UNIQUE (patient_id, doctor_id);
+
+-- ===== daily_logs: listagem por usuário e envio idempotente =====
+CREATE INDEX IF NOT EXISTS idx_daily_logs_user_created ON daily_logs (user_id, created_at DESC, id DESC);
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_daily_logs_user_idempotency') THEN
+        ALTER TABLE daily_logs ADD CONSTRAINT uk_daily_logs_user_idempotency UNIQUE (user_id, idempotency_key);
+    END IF;
+END $$;
+
+-- ===== users: diretório de médicos =====
+-- Roles sempre em maiúsculas, para que as consultas usem role = 'DOCTOR' e o índice parcial
+UPDATE users SET role = UPPER(role) WHERE role IS NOT NULL AND role <> UPPER(role);
+
+CREATE INDEX IF NOT EXISTS idx_users_doctors ON users (id) WHERE role = 'DOCTOR';
+CREATE INDEX IF NOT EXISTS idx_users_doctors_specialization ON users (especializacao) WHERE role = 'DOCTOR';
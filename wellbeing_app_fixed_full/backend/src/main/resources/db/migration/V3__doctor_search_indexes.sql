@@ -0,0 +1,17 @@
+-- Busca no diretório de médicos (DoctorSearchService): LIKE '%termo%' em
+-- minúsculas usa índices GIN trigram; só linhas de médicos são indexadas.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_users_doctors_full_name_trgm
+    ON users USING gin (lower(full_name) gin_trgm_ops) WHERE role = 'DOCTOR';
+CREATE INDEX IF NOT EXISTS idx_users_doctors_bio_trgm
+    ON users USING gin (lower(bio) gin_trgm_ops) WHERE role = 'DOCTOR';
+CREATE INDEX IF NOT EXISTS idx_users_doctors_location_trgm
+    ON users USING gin (lower(location) gin_trgm_ops) WHERE role = 'DOCTOR';
+CREATE INDEX IF NOT EXISTS idx_users_doctors_specialization_trgm
+    ON users USING gin (lower(especializacao) gin_trgm_ops) WHERE role = 'DOCTOR';
+
+-- Ordenação padrão (maior nota primeiro) sem sort em memória
+CREATE INDEX IF NOT EXISTS idx_users_doctors_rating
+    ON users (rating DESC NULLS LAST, id) WHERE role = 'DOCTOR';
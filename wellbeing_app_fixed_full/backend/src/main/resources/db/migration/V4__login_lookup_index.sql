@@ -0,0 +1,4 @@
+-- Login por username ou email em uma única consulta (UserRepository.findByLogin):
+-- username usa o índice único existente e o email é comparado em minúsculas.
+
+CREATE INDEX IF NOT EXISTS idx_users_email_lower ON users (lower(email));
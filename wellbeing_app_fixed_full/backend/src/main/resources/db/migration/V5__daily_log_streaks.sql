@@ -0,0 +1,16 @@
+-- Sequências de dias com registro mantidas no resumo diário (DailyLogStatsService):
+-- streak_days = dias consecutivos com registro terminando naquele dia. A sequência
+-- atual é a linha de hoje/ontem e a maior é um MAX pelo índice, sem ler o histórico.
+
+ALTER TABLE daily_log_day_stats ADD COLUMN IF NOT EXISTS streak_days integer NOT NULL DEFAULT 0;
+
+-- Ilhas de dias consecutivos: log_day - posição é constante dentro de cada sequência
+UPDATE daily_log_day_stats s SET streak_days = r.n
+FROM (SELECT user_id, log_day,
+             ROW_NUMBER() OVER (PARTITION BY user_id, grp ORDER BY log_day) AS n
+      FROM (SELECT user_id, log_day,
+                   log_day - CAST(ROW_NUMBER() OVER (PARTITION BY user_id ORDER BY log_day) AS integer) AS grp
+            FROM daily_log_day_stats) g) r
+WHERE s.user_id = r.user_id AND s.log_day = r.log_day;
+
+CREATE INDEX IF NOT EXISTS idx_daily_log_day_stats_user_streak ON daily_log_day_stats (user_id, streak_days);
@@ -0,0 +1,10 @@
+-- Id da última mensagem do chat: desempate quando duas mensagens têm o mesmo
+-- created_at, para a prévia da caixa de entrada nunca voltar para uma anterior
+-- (ChatRepository.recordMessage só avança para uma mensagem mais nova).
+
+ALTER TABLE chats ADD COLUMN IF NOT EXISTS last_message_id bigint;
+
+UPDATE chats c SET last_message_id = lm.id
+FROM (SELECT DISTINCT ON (m.chat_id) m.chat_id, m.id
+      FROM messages m ORDER BY m.chat_id, m.created_at DESC, m.id DESC) lm
+WHERE lm.chat_id = c.id;
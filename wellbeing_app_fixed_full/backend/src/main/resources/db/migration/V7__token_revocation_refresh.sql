@@ -0,0 +1,13 @@
+-- Revogações de token visíveis para todos os nós (TokenRevocationCache.refresh):
+-- logouts ficam em users.tokens_revoked_at; contas excluídas não têm mais a
+-- linha em users, então deixam uma marca aqui até os tokens delas expirarem.
+
+CREATE TABLE IF NOT EXISTS deleted_accounts (
+    user_id    bigint                      NOT NULL PRIMARY KEY,
+    deleted_at timestamp(6) with time zone NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_deleted_accounts_deleted_at ON deleted_accounts (deleted_at);
+
+-- A releitura periódica busca só as revogações recentes
+CREATE INDEX IF NOT EXISTS idx_users_tokens_revoked_at ON users (tokens_revoked_at)
+    WHERE tokens_revoked_at IS NOT NULL;
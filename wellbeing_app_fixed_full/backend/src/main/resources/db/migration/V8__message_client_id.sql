@@ -0,0 +1,12 @@
+-- Id da mensagem gerado pelo cliente: um reenvio depois de um timeout (a mensagem
+-- pode ter sido gravada mesmo sem a confirmação chegar) devolve a mesma mensagem
+-- em vez de criar outra. Opcional; várias linhas com NULL continuam permitidas.
+
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS client_message_id varchar(64);
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_messages_sender_client_id') THEN
+        ALTER TABLE messages ADD CONSTRAINT uk_messages_sender_client_id UNIQUE (sender_id, client_message_id);
+    END IF;
+END $$;
@@ -0,0 +1,58 @@
+package com.example.wellbeing;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Base dos testes que precisam de um PostgreSQL de verdade (consultas nativas,
+ * planos, Flyway). Usa o banco de TEST_DATABASE_URL (TEST_DATABASE_USERNAME /
+ * TEST_DATABASE_PASSWORD) quando definido; senão sobe um container com
+ * Testcontainers. Sem nenhum dos dois os testes são ignorados.
+ *
+ * O esquema é sempre o das migrations (V1..), validado pelo Hibernate.
+ */
+public abstract class PostgresIntegrationTest {
+
+    private static final String EXTERNAL_URL = System.getenv("TEST_DATABASE_URL");
+
+    private static PostgreSQLContainer<?> container;
+
+    @BeforeAll
+    static void requireDatabase() {
+        assumeTrue(EXTERNAL_URL != null || DockerClientFactory.instance().isDockerAvailable(),
+                "Sem PostgreSQL para teste (defina TEST_DATABASE_URL ou rode com Docker)");
+    }
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        if (EXTERNAL_URL != null) {
+            registry.add("spring.datasource.url", () -> EXTERNAL_URL);
+            registry.add("spring.datasource.username", () -> env("TEST_DATABASE_USERNAME", "postgres"));
+            registry.add("spring.datasource.password", () -> env("TEST_DATABASE_PASSWORD", "postgres"));
+            return;
+        }
+        PostgreSQLContainer<?> postgres = startContainer();
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl() + "&reWriteBatchedInserts=true");
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    // Um container para toda a execução; o Ryuk do Testcontainers o derruba no fim
+    private static synchronized PostgreSQLContainer<?> startContainer() {
+        if (container == null) {
+            container = new PostgreSQLContainer<>("postgres:16-alpine");
+            container.start();
+        }
+        return container;
+    }
+
+    private static String env(String name, String fallback) {
+        String value = System.getenv(name);
+        return value != null ? value : fallback;
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.wellbeing.config;
+
+import com.example.wellbeing.PostgresIntegrationTest;
+import com.example.wellbeing.WellbeingApplication;
+import com.example.wellbeing.model.User;
+import com.example.wellbeing.repository.UserRepository;
+import com.example.wellbeing.security.JwtUtil;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Carga de verdade nos endpoints, com o pool de plataforma do Tomcat e com o
+ * perfil virtual-threads: cada modo sobe a aplicação inteira numa porta
+ * aleatória (Tomcat, filtro JWT, Hibernate/Hikari, show-sql no stdout). Cada
+ * cliente alterna o histórico do chat (GET /api/chats/{id}/messages) e o
+ * heartbeat (POST /api/users/update-last-seen), REQUESTS_PER_CLIENT em
+ * sequência; mede throughput e p50/p99 com 1k e 5k clientes simultâneos.
+ *
+ * No modo virtual um Recording do JFR registra jdk.VirtualThreadPinned (sem
+ * limiar) durante a carga: qualquer thread virtual estacionada presa à
+ * portadora no filtro, no JPA ou no log reprova o teste, com a pilha impressa.
+ *
+ * mvn -Pbenchmarks test, com PostgreSQL (TEST_DATABASE_URL ou Docker). A parte
+ * virtual só roda em JDK 21+: mvn -Pbenchmarks,virtual-threads test, que também
+ * traz o HikariCP do perfil.
+ */
+@Tag("benchmark")
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VirtualThreadEndpointBenchmarkTest extends PostgresIntegrationTest {
+
+    private static final int PATIENTS = 200;
+    private static final int MESSAGES_PER_CHAT = 20;
+    private static final int REQUESTS_PER_CLIENT = 4;
+    private static final int WARMUP_CLIENTS = 500;
+    private static final String PREFIX = "vt-bench-";
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private record Result(String mode, int clients, double throughput, double p50Millis, double p99Millis,
+                          Map<String, Integer> failures) {
+        void print() {
+            System.out.printf("%-9s clients=%5d  throughput=%8.0f req/s  p50=%7.1f ms  p99=%7.1f ms  falhas=%s%n",
+                    mode, clients, throughput, p50Millis, p99Millis, failures);
+        }
+    }
+
+    // Um paciente por token, com o seu chat
+    private record Session(String token, long chatId) {}
+
+    @Autowired
+    private DataSourceProperties dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+
+    @BeforeEach
+    void seed() {
+        cleanUp();
+        jdbcTemplate.update("INSERT INTO users (id, username, email, password, full_name, role, token_version, created_at) " +
+                "VALUES (nextval('users_seq'), ?, ?, 'x', 'Médico', 'DOCTOR', 0, now())",
+                PREFIX + "doctor", PREFIX + "doctor@example.com");
+        jdbcTemplate.update("INSERT INTO users (id, username, email, password, full_name, role, token_version, created_at) " +
+                "SELECT nextval('users_seq'), ? || n, ? || n || '@example.com', 'x', 'Paciente ' || n, 'PATIENT', 0, now() " +
+                "FROM generate_series(1, ?) AS n", PREFIX, PREFIX, PATIENTS);
+        jdbcTemplate.update("INSERT INTO chats (id, patient_id, doctor_id, title, updated_at) " +
+                "SELECT nextval('chats_seq'), p.id, d.id, 'Carga', now() FROM users p, users d " +
+                "WHERE p.username LIKE ? AND p.role = 'PATIENT' AND d.username = ?", PREFIX + "%", PREFIX + "doctor");
+        jdbcTemplate.update("INSERT INTO messages (id, chat_id, sender_id, sender_role, content, created_at) " +
+                "SELECT nextval('messages_seq'), c.id, c.patient_id, 'PATIENT', 'Mensagem ' || n, " +
+                "now() - n * INTERVAL '1 minute' FROM chats c CROSS JOIN generate_series(1, ?) AS n " +
+                "WHERE c.title = 'Carga' AND c.patient_id IN (SELECT id FROM users WHERE username LIKE ?)",
+                MESSAGES_PER_CHAT, PREFIX + "%");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        String users = "(SELECT id FROM users WHERE username LIKE '" + PREFIX + "%')";
+        jdbcTemplate.update("DELETE FROM messages WHERE chat_id IN (SELECT id FROM chats WHERE patient_id IN " + users + ")");
+        jdbcTemplate.update("DELETE FROM chats WHERE patient_id IN " + users);
+        jdbcTemplate.update("DELETE FROM users WHERE username LIKE '" + PREFIX + "%'");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1000, 5000})
+    void compareWithPlatformPool(int clients) throws Exception {
+        benchmark(false, clients);
+
+        if (Runtime.version().feature() < 21) {
+            System.out.println("virtual   (ignorado: requer JDK 21, mvn -Pbenchmarks,virtual-threads test)");
+            return;
+        }
+        benchmark(true, clients);
+    }
+
+    private void benchmark(boolean virtualThreads, int clients) throws Exception {
+        SpringApplicationBuilder app = new SpringApplicationBuilder(WellbeingApplication.class);
+        if (virtualThreads) {
+            app.profiles("virtual-threads");
+        }
+        // Argumentos de linha de comando: valem acima do application.properties
+        try (ConfigurableApplicationContext context = app.run("--server.port=0",
+                "--spring.datasource.url=" + dataSource.getUrl(),
+                "--spring.datasource.username=" + dataSource.getUsername(),
+                "--spring.datasource.password=" + dataSource.getPassword())) {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            List<Session> sessions = sessions(context);
+            String mode = virtualThreads ? "virtual" : "platform";
+
+            PrintStream stdout = System.out;
+            Path recordingFile = Files.createTempFile("vt-pinned", ".jfr");
+            List<RecordedEvent> pinned;
+            Result result;
+            // Mesmo PrintStream do JDK que o stdout da aplicação em produção, sem inundar o log do build
+            System.setOut(new PrintStream(OutputStream.nullOutputStream(), true));
+            try (Recording recording = new Recording()) {
+                run(mode, port, sessions, WARMUP_CLIENTS); // aquecimento: carga de classes e JIT
+                if (virtualThreads) {
+                    recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+                    recording.start();
+                }
+                result = run(mode, port, sessions, clients);
+                if (virtualThreads) {
+                    recording.stop();
+                    recording.dump(recordingFile);
+                }
+            } finally {
+                System.setOut(stdout);
+            }
+            pinned = virtualThreads ? RecordingFile.readAllEvents(recordingFile) : List.of();
+            Files.deleteIfExists(recordingFile);
+
+            result.print();
+            pinned.forEach(event -> System.out.println(PINNED_EVENT + " " + event.getDuration().toMillis()
+                    + " ms\n" + stack(event)));
+            assertThat(result.failures()).as("falhas em " + mode).isEmpty();
+            assertThat(pinned).as("threads virtuais presas à portadora").isEmpty();
+        }
+    }
+
+    private static List<Session> sessions(ConfigurableApplicationContext context) {
+        JwtUtil jwtUtil = context.getBean(JwtUtil.class);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        UserRepository users = context.getBean(UserRepository.class);
+        List<Session> sessions = new ArrayList<>();
+        jdbc.query("SELECT c.patient_id, c.id FROM chats c JOIN users u ON u.id = c.patient_id " +
+                "WHERE u.username LIKE ? ORDER BY c.id", rs -> {
+            User patient = users.findById(rs.getLong(1)).orElseThrow();
+            sessions.add(new Session(jwtUtil.generateToken(patient), rs.getLong(2)));
+        }, PREFIX + "%");
+        assertThat(sessions).hasSize(PATIENTS);
+        return sessions;
+    }
+
+    private Result run(String mode, int port, List<Session> sessions, int clients) {
+        int total = clients * REQUESTS_PER_CLIENT;
+        long[] latencies = new long[total];
+        AtomicInteger recorded = new AtomicInteger();
+        Map<String, Integer> failures = new ConcurrentHashMap<>();
+
+        long startedAt = System.nanoTime();
+        CompletableFuture<?>[] running = new CompletableFuture<?>[clients];
+        for (int c = 0; c < clients; c++) {
+            Session session = sessions.get(c % sessions.size());
+            CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+            for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                HttpRequest request = r % 2 == 0 ? messages(port, session) : heartbeat(port, session);
+                chain = chain.thenCompose(ignored -> send(request, latencies, recorded, failures));
+            }
+            running[c] = chain;
+        }
+        CompletableFuture.allOf(running).join();
+        double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+
+        Arrays.sort(latencies);
+        return new Result(mode, clients, total / elapsedSeconds,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), new TreeMap<>(failures));
+    }
+
+    private CompletableFuture<Void> send(HttpRequest request, long[] latencies, AtomicInteger recorded,
+                                         Map<String, Integer> failures) {
+        long sentAt = System.nanoTime();
+        return http.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    // Falhas por status HTTP ou exceção do cliente
+                    if (error != null) failures.merge(error.getClass().getSimpleName(), 1, Integer::sum);
+                    else if (response.statusCode() != 200) failures.merge("HTTP " + response.statusCode(), 1, Integer::sum);
+                    latencies[recorded.getAndIncrement()] = System.nanoTime() - sentAt;
+                    return null;
+                });
+    }
+
+    private static HttpRequest messages(int port, Session session) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/chats/" + session.chatId()
+                        + "/messages?limit=" + MESSAGES_PER_CHAT))
+                .header("Authorization", "Bearer " + session.token())
+                .timeout(Duration.ofSeconds(120))
+                .GET()
+                .build();
+    }
+
+    private static HttpRequest heartbeat(int port, Session session) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/users/update-last-seen"))
+                .header("Authorization", "Bearer " + session.token())
+                .timeout(Duration.ofSeconds(120))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    private static String stack(RecordedEvent event) {
+        if (event.getStackTrace() == null) return "  (sem pilha)";
+        return event.getStackTrace().getFrames().stream()
+                .map(RecordedFrame::getMethod)
+                .map(method -> "  at " + method.getType().getName() + "." + method.getName())
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static double percentile(long[] sortedNanos, double p) {
+        int index = (int) Math.ceil(p * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.wellbeing.repository;
+
+import com.example.wellbeing.PostgresIntegrationTest;
+import com.example.wellbeing.model.Chat;
+import com.example.wellbeing.model.User;
+import com.example.wellbeing.repository.projection.ChatInboxView;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A caixa de entrada (GET /api/chats) precisa continuar sendo uma consulta só,
+ * com 1 chat ou com 100: nada de N+1 para participantes ou última mensagem.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ChatInboxQueryCountTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Test
+    void inboxUsesOneStatementRegardlessOfChatCount() {
+        User doctor = persistUser("inbox-doctor", "DOCTOR");
+        User patient = persistUser("inbox-patient", "PATIENT");
+
+        long withOneChat = -1;
+        int chats = 0;
+        for (int target : new int[] {1, 10, 100}) {
+            while (chats < target) {
+                User other = chats == 0 ? patient : persistUser("inbox-patient-" + chats, "PATIENT");
+                persistChat(other, doctor, "mensagem " + chats);
+                chats++;
+            }
+            entityManager.flush();
+            entityManager.clear();
+
+            Statistics statistics = statistics();
+            statistics.clear();
+            List<ChatInboxView> inbox = chatRepository.findInboxByDoctorId(doctor.getId());
+            // Lê tudo o que o controller lê (nomes, fotos, última mensagem)
+            inbox.forEach(row -> {
+                assertThat(row.getPatientName()).isNotNull();
+                assertThat(row.getDoctorName()).isEqualTo(doctor.getFullName());
+                assertThat(row.getLastMessage()).startsWith("mensagem ");
+                row.getPatientProfilePictureId();
+                row.getDoctorProfilePictureId();
+            });
+
+            assertThat(inbox).hasSize(target);
+            long statements = statistics.getPrepareStatementCount();
+            if (withOneChat < 0) withOneChat = statements;
+            assertThat(statements).as("statements com %d chats", target).isEqualTo(withOneChat);
+        }
+        assertThat(withOneChat).isEqualTo(1);
+
+        // O lado do paciente usa a mesma consulta
+        Statistics statistics = statistics();
+        statistics.clear();
+        assertThat(chatRepository.findInboxByPatientId(patient.getId())).hasSize(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private User persistUser(String username, String role) {
+        User user = new User(username, username + "@example.com", "x", "Nome " + username, role);
+        return entityManager.persist(user);
+    }
+
+    private void persistChat(User patient, User doctor, String lastMessage) {
+        Chat chat = new Chat();
+        chat.setPatientId(patient.getId());
+        chat.setDoctorId(doctor.getId());
+        chat.setTitle("Chat " + patient.getUsername());
+        chat.setLastMessagePreview(lastMessage);
+        chat.setLastMessageSenderId(patient.getId());
+        chat.setMessageCount(1L);
+        entityManager.persist(chat);
+    }
+}
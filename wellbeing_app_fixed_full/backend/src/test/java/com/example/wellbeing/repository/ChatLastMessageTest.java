@@ -0,0 +1,74 @@
+package com.example.wellbeing.repository;
+
+import com.example.wellbeing.PostgresIntegrationTest;
+import com.example.wellbeing.model.Chat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A prévia da caixa de entrada só avança: uma mensagem mais antiga que commita
+ * depois conta no total, mas não substitui a última.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ChatLastMessageTest extends PostgresIntegrationTest {
+
+    private static final Instant T0 = Instant.parse("2024-05-01T10:00:00Z");
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Test
+    void olderMessageCommittedLaterDoesNotMoveThePreviewBack() {
+        Long chatId = persistChat();
+
+        chatRepository.recordMessage(chatId, 20L, "nova", 1L, T0.plusSeconds(5));
+        chatRepository.recordMessage(chatId, 10L, "antiga", 2L, T0);
+
+        Chat chat = reload(chatId);
+        assertThat(chat.getLastMessagePreview()).isEqualTo("nova");
+        assertThat(chat.getLastMessageSenderId()).isEqualTo(1L);
+        assertThat(chat.getLastMessageAt()).isEqualTo(T0.plusSeconds(5));
+        assertThat(chat.getUpdatedAt()).isEqualTo(T0.plusSeconds(5));
+        assertThat(chat.getMessageCount()).isEqualTo(2L);
+    }
+
+    @Test
+    void sameInstantIsDecidedByMessageId() {
+        Long chatId = persistChat();
+
+        chatRepository.recordMessages(chatId, 31L, "maior id", 1L, T0, 2);
+        chatRepository.recordMessage(chatId, 30L, "menor id", 2L, T0);
+        assertThat(reload(chatId).getLastMessagePreview()).isEqualTo("maior id");
+
+        chatRepository.recordMessage(chatId, 32L, "seguinte", 2L, T0);
+        Chat chat = reload(chatId);
+        assertThat(chat.getLastMessagePreview()).isEqualTo("seguinte");
+        assertThat(chat.getLastMessageId()).isEqualTo(32L);
+        assertThat(chat.getMessageCount()).isEqualTo(4L);
+    }
+
+    private Long persistChat() {
+        Chat chat = new Chat();
+        chat.setPatientId(1L);
+        chat.setDoctorId(2L);
+        chat.setTitle("Chat");
+        chat.setUpdatedAt(T0.minusSeconds(60));
+        return entityManager.persistAndFlush(chat).getId();
+    }
+
+    private Chat reload(Long chatId) {
+        entityManager.clear();
+        return entityManager.find(Chat.class, chatId);
+    }
+}
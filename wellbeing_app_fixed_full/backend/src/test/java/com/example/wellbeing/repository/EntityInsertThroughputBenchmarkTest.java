@@ -0,0 +1,212 @@
+package com.example.wellbeing.repository;
+
+import com.example.wellbeing.PostgresIntegrationTest;
+import com.example.wellbeing.model.DailyLog;
+import com.example.wellbeing.model.Message;
+import com.example.wellbeing.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Vazão de saveAll de Message e DailyLog pelos repositórios, com o Hibernate
+ * configurado como antes e depois da troca para sequences em bloco e JDBC batch:
+ *
+ * - antes: hibernate.jdbc.batch_size desligado, um INSERT por entidade (como
+ *   era com IDENTITY, que obriga o insert na hora do persist);
+ * - lote: batch_size=50 e order_inserts, ids do pooled sequence;
+ * - depois: o mesmo lote com reWriteBatchedInserts=true (application.properties).
+ *
+ * Cada configuração tem a sua EntityManagerFactory e os repositórios de
+ * verdade (JpaRepositoryFactory); commit a cada COMMIT_EVERY entidades de
+ * cada tipo, sem transação do teste (as conexões do benchmark precisam ver
+ * o usuário). mvn -Pbenchmarks test, com PostgreSQL (TEST_DATABASE_URL ou Docker).
+ */
+@Tag("benchmark")
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EntityInsertThroughputBenchmarkTest extends PostgresIntegrationTest {
+
+    private static final int ROWS = 10_000;
+    private static final int BATCH_SIZE = 50;
+    private static final int COMMIT_EVERY = 500;
+    // Chat inexistente: as linhas do benchmark são apagadas no fim
+    private static final long BENCHMARK_CHAT_ID = -4242L;
+
+    private record Result(double messagesPerSecond, double dailyLogsPerSecond, long statements) {}
+
+    @Autowired
+    private DataSourceProperties dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long userId;
+
+    @BeforeEach
+    void createUser() {
+        userId = jdbcTemplate.queryForObject("INSERT INTO users (id, username, email, password, role, created_at) " +
+                "VALUES (nextval('users_seq'), 'insert-bench', 'insert-bench@example.com', 'x', 'PATIENT', now()) " +
+                "RETURNING id", Long.class);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM messages WHERE chat_id = ?", BENCHMARK_CHAT_ID);
+        jdbcTemplate.update("DELETE FROM daily_logs WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+    }
+
+    @Test
+    void compareSaveAllBeforeAndAfterBatching() {
+        run(0, false); // aquecimento
+        Result before = run(0, false);
+        Result batched = run(BATCH_SIZE, false);
+        Result after = run(BATCH_SIZE, true);
+
+        print("antes (sem batch):", before);
+        print("lote de " + BATCH_SIZE + ":", batched);
+        print("lote de " + BATCH_SIZE + " + reWriteBatchedInserts:", after);
+
+        // O batch tem que valer de fato pelos repositórios: sem ele um INSERT preparado por linha;
+        // com ele um por transação, reaproveitado lote a lote no flush
+        assertThat(before.statements()).isEqualTo(2L * ROWS);
+        assertThat(after.statements()).isEqualTo(2L * ROWS / COMMIT_EVERY);
+        assertThat(after.messagesPerSecond()).isGreaterThan(before.messagesPerSecond());
+        assertThat(after.dailyLogsPerSecond()).isGreaterThan(before.dailyLogsPerSecond());
+    }
+
+    private Result run(int batchSize, boolean rewriteBatchedInserts) {
+        SingleConnectionDataSource connection = new SingleConnectionDataSource(url(rewriteBatchedInserts),
+                dataSource.getUsername(), dataSource.getPassword(), true);
+        AtomicLong inserts = new AtomicLong();
+        EntityManagerFactory emf = entityManagerFactory(connection, batchSize, inserts);
+        try {
+            EntityManager em = SharedEntityManagerCreator.createSharedEntityManager(emf);
+            JpaRepositoryFactory repositories = new JpaRepositoryFactory(em);
+            MessageRepository messageRepository = repositories.getRepository(MessageRepository.class);
+            DailyLogRepository dailyLogRepository = repositories.getRepository(DailyLogRepository.class);
+            TransactionTemplate tx = new TransactionTemplate(new JpaTransactionManager(emf));
+
+            String content = "x".repeat(120);
+            long messageNanos = 0;
+            long dailyLogNanos = 0;
+            for (int done = 0; done < ROWS; done += COMMIT_EVERY) {
+                List<Message> messages = new ArrayList<>(COMMIT_EVERY);
+                for (int i = 0; i < COMMIT_EVERY; i++) {
+                    messages.add(message(content));
+                }
+                long startedAt = System.nanoTime();
+                tx.executeWithoutResult(status -> messageRepository.saveAll(messages));
+                messageNanos += System.nanoTime() - startedAt;
+
+                startedAt = System.nanoTime();
+                tx.executeWithoutResult(status -> {
+                    User user = em.getReference(User.class, userId);
+                    List<DailyLog> logs = new ArrayList<>(COMMIT_EVERY);
+                    for (int i = 0; i < COMMIT_EVERY; i++) {
+                        logs.add(dailyLog(user, content));
+                    }
+                    dailyLogRepository.saveAll(logs);
+                });
+                dailyLogNanos += System.nanoTime() - startedAt;
+            }
+            return new Result(ROWS / (messageNanos / 1e9), ROWS / (dailyLogNanos / 1e9), inserts.get());
+        } finally {
+            emf.close();
+            connection.destroy();
+            cleanUpRows();
+        }
+    }
+
+    private EntityManagerFactory entityManagerFactory(SingleConnectionDataSource connection, int batchSize,
+                                                      AtomicLong inserts) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("hibernate.hbm2ddl.auto", "none");
+        properties.put("hibernate.physical_naming_strategy", CamelCaseToUnderscoresNamingStrategy.class.getName());
+        properties.put("hibernate.implicit_naming_strategy", SpringImplicitNamingStrategy.class.getName());
+        // INSERTs preparados: um por linha sem batch, um por flush com batch
+        properties.put("hibernate.session_factory.statement_inspector", (StatementInspector) sql -> {
+            if (sql.regionMatches(true, 0, "insert", 0, 6)) inserts.incrementAndGet();
+            return sql;
+        });
+        properties.put("hibernate.jdbc.batch_size", String.valueOf(batchSize));
+        properties.put("hibernate.order_inserts", String.valueOf(batchSize > 0));
+
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(connection);
+        factory.setPackagesToScan(User.class.getPackageName());
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(properties);
+        factory.afterPropertiesSet();
+        return factory.getObject();
+    }
+
+    private void cleanUpRows() {
+        jdbcTemplate.update("DELETE FROM messages WHERE chat_id = ?", BENCHMARK_CHAT_ID);
+        jdbcTemplate.update("DELETE FROM daily_logs WHERE user_id = ?", userId);
+    }
+
+    private String url(boolean rewriteBatchedInserts) {
+        String url = dataSource.getUrl().replaceAll("[?&]reWriteBatchedInserts=[^&]*", "");
+        return url + (url.contains("?") ? "&" : "?") + "reWriteBatchedInserts=" + rewriteBatchedInserts;
+    }
+
+    private static Message message(String content) {
+        Message message = new Message();
+        message.setChatId(BENCHMARK_CHAT_ID);
+        message.setSenderId(1L);
+        message.setSenderRole("PATIENT");
+        message.setContent(content);
+        message.setCreatedAt(Instant.now());
+        return message;
+    }
+
+    private static DailyLog dailyLog(User user, String notes) {
+        DailyLog log = new DailyLog();
+        log.setUser(user);
+        log.setPainLevel(3);
+        log.setSleepQuality(4);
+        log.setMood(5);
+        log.setAdditionalNotes(notes);
+        log.setCreatedAt(LocalDateTime.now());
+        log.setUpdatedAt(LocalDateTime.now());
+        return log;
+    }
+
+    private static void print(String label, Result result) {
+        System.out.printf("%-38s Message %8.0f/s   DailyLog %8.0f/s   %6d INSERTs preparados%n",
+                label, result.messagesPerSecond(), result.dailyLogsPerSecond(), result.statements());
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.wellbeing.repository;
+
+import com.example.wellbeing.PostgresIntegrationTest;
+import com.example.wellbeing.service.DoctorSearchService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.transaction.BeforeTransaction;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Planos das consultas quentes sobre o esquema das migrations: o SQL que o
+ * Hibernate gera de fato é capturado, preparado e explicado com seq scan
+ * desligado, para confirmar que cada consulta tem o índice que a atende (e,
+ * nos cursores, sem Sort). Sem valores o plano é o genérico, que vale para
+ * qualquer parâmetro; a busca por texto é explicada com o termo, como o
+ * planner a vê de fato. Uma mudança na consulta ou no índice
+ * que os descasa quebra aqui, e não só em produção.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.example.wellbeing.repository.HotPathQueryPlanTest$CapturingInspector")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(DoctorSearchService.class)
+class HotPathQueryPlanTest extends PostgresIntegrationTest {
+
+    // Guarda o SQL executado pelo Hibernate durante o teste
+    public static class CapturingInspector implements StatementInspector {
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private DailyLogRepository dailyLogRepository;
+
+    @Autowired
+    private DoctorSearchService doctorSearchService;
+
+    @BeforeEach
+    void planWithIndexesOnly() {
+        // Tabelas vazias: sem isso o planner prefere seq scan e o teste não diria nada
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+        CapturingInspector.statements.clear();
+    }
+
+    // Banco compartilhado (TEST_DATABASE_URL): cargas apagadas por outros testes deixam páginas mortas, e o
+    // ANALYZE de um teste desfeito deixa reltuples para trás; os planos partem do conteúdo real das tabelas
+    @BeforeTransaction
+    void vacuumTables() {
+        jdbcTemplate.execute("VACUUM ANALYZE users, chats, messages, daily_logs");
+    }
+
+    @Test
+    void inboxUsesParticipantIndexes() {
+        // Tabela vazia deixa os índices de chats empatados: 1000 pacientes com 5 chats, 5 médicos com 1000
+        jdbcTemplate.update("INSERT INTO chats (id, patient_id, doctor_id, title, updated_at) " +
+                "SELECT nextval('chats_seq'), -1 - n % 1000, -10000 - n / 1000, 'Plano', now() - n * INTERVAL '1 minute' " +
+                "FROM generate_series(0, 4999) AS n");
+        jdbcTemplate.execute("ANALYZE chats");
+
+        chatRepository.findInboxByDoctorId(1L);
+        assertThat(explainLast()).contains("idx_chats_doctor_updated").doesNotContain("Seq Scan");
+
+        // Poucos chats por paciente: o planner lê pela unique (patient_id, doctor_id) e ordena, ou pelo índice ordenado
+        chatRepository.findInboxByPatientId(1L);
+        assertThat(explainLast()).containsAnyOf("idx_chats_patient_updated", "uk_chats_patient_doctor")
+                .contains("Index Cond: (patient_id = $1)").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void messageKeysetReadsIndexInOrder() {
+        messageRepository.findPageBefore(1L, Instant.now(), 100L, PageRequest.of(0, 50));
+        assertThat(explainLast()).contains("idx_messages_chat_created_id")
+                .doesNotContain("Seq Scan").doesNotContain("Sort");
+
+        messageRepository.findPageAfter(1L, Instant.now(), 100L, PageRequest.of(0, 50));
+        assertThat(explainLast()).contains("idx_messages_chat_created_id")
+                .doesNotContain("Seq Scan").doesNotContain("Sort");
+    }
+
+    @Test
+    void dailyLogKeysetReadsIndexInOrder() {
+        dailyLogRepository.findPageBefore(1L, LocalDateTime.now(), 100L, PageRequest.of(0, 30));
+        assertThat(explainLast()).contains("idx_daily_logs_user_created")
+                .doesNotContain("Seq Scan").doesNotContain("Sort");
+    }
+
+    @Test
+    void directorySearchUsesTrigramIndexes() {
+        // Com a tabela quase vazia varrer o índice de nota e filtrar sempre ganha; com um diretório real, não
+        jdbcTemplate.update("INSERT INTO users (id, username, email, password, full_name, role, created_at, " +
+                "especializacao, bio, location, rating) " +
+                "SELECT nextval('users_seq'), 'plan-doctor-' || n, 'plan-doctor-' || n || '@example.com', 'x', " +
+                "'Médico ' || md5(n::text), 'DOCTOR', now(), 'Especialidade ' || (n % 40), md5(n::text), " +
+                "'Cidade ' || (n % 300), (n % 50) / 10.0 FROM generate_series(1, 5000) AS n");
+        // Carga recém-feita fica na pending list dos GIN, que o planner custa caro; o VACUUM faria isto
+        jdbcTemplate.queryForList("SELECT gin_clean_pending_list(indexrelid::regclass) FROM pg_index " +
+                "WHERE indrelid = 'users'::regclass AND indexrelid::regclass::text LIKE '%\\_trgm'", Long.class);
+        jdbcTemplate.execute("ANALYZE users");
+
+        doctorSearchService.search("cardio", null, null, null, null, "rating", 0, 20);
+        // search faz o SELECT da página e depois o COUNT
+        assertThat(CapturingInspector.statements).hasSize(2);
+        assertThat(explain(CapturingInspector.statements.get(0), "'%cardio%'", "'%cardio%'", "'%cardio%'", "0", "20"))
+                .contains("idx_users_doctors_full_name_trgm", "idx_users_doctors_bio_trgm",
+                        "idx_users_doctors_specialization_trgm")
+                .doesNotContain("Seq Scan");
+
+        CapturingInspector.statements.clear();
+        doctorSearchService.search(null, null, "recife", null, null, "rating", 0, 20);
+        assertThat(explain(CapturingInspector.statements.get(0), "'%recife%'", "0", "20"))
+                .contains("idx_users_doctors_location_trgm").doesNotContain("Seq Scan");
+
+        // Sem filtro de texto a ordenação padrão sai do índice de nota
+        CapturingInspector.statements.clear();
+        doctorSearchService.search(null, null, null, null, null, "rating", 0, 20);
+        assertThat(explain(CapturingInspector.statements.get(0)))
+                .contains("idx_users_doctors_rating").doesNotContain("Seq Scan").doesNotContain("Sort");
+    }
+
+    private String explainLast() {
+        assertThat(CapturingInspector.statements).isNotEmpty();
+        return explain(CapturingInspector.statements.get(CapturingInspector.statements.size() - 1));
+    }
+
+    // Sem valores: plano genérico, com os parâmetros NULL (não entram no plano)
+    private String explain(String sql, String... values) {
+        StringBuilder numbered = new StringBuilder(sql.length() + 16);
+        int parameters = numberParameters(sql, numbered);
+        List<String> arguments = values.length > 0 ? List.of(values) : Collections.nCopies(parameters, "NULL");
+        assertThat(arguments).hasSize(parameters);
+        jdbcTemplate.execute("SET LOCAL plan_cache_mode = " + (values.length > 0 ? "force_custom_plan" : "force_generic_plan"));
+        jdbcTemplate.execute("PREPARE hot_path_plan AS " + numbered);
+        String execute = parameters == 0 ? "" : "(" + String.join(", ", arguments) + ")";
+        List<String> lines = jdbcTemplate.queryForList("EXPLAIN EXECUTE hot_path_plan" + execute, String.class);
+        jdbcTemplate.execute("DEALLOCATE hot_path_plan");
+        String plan = String.join("\n", lines);
+        System.out.println(plan);
+        return plan;
+    }
+
+    // JDBC usa ?; o PREPARE precisa de $1, $2...
+    private static int numberParameters(String sql, StringBuilder numbered) {
+        int parameter = 0;
+        boolean inLiteral = false;
+        for (char c : sql.toCharArray()) {
+            if (c == '\'') inLiteral = !inLiteral;
+            if (c == '?' && !inLiteral) {
+                numbered.append('$').append(++parameter);
+            } else {
+                numbered.append(c);
+            }
+        }
+        return parameter;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.wellbeing.repository;
+
+import com.example.wellbeing.PostgresIntegrationTest;
+import com.example.wellbeing.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Salvar um usuário carregado antes do flush de presença não pode voltar o
+ * last_seen gravado pelo PresenceRegistry.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UserLastSeenWriteTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void staleEntitySaveKeepsFlushedLastSeen() {
+        User user = new User();
+        user.setUsername("presence-user");
+        user.setEmail("presence-user@example.com");
+        user.setPassword("x");
+        user.setLastSeen(Instant.parse("2024-05-01T10:00:00Z"));
+        Long id = entityManager.persistAndFlush(user).getId();
+        entityManager.clear();
+
+        User stale = userRepository.findById(id).orElseThrow();
+        // Flush do PresenceRegistry entre a leitura e o save
+        Instant flushed = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        jdbcTemplate.update("UPDATE users SET last_seen = ? WHERE id = ?", Timestamp.from(flushed), id);
+
+        stale.setFullName("Nome novo");
+        stale.setLastSeen(Instant.parse("2024-05-01T10:00:00Z"));
+        userRepository.saveAndFlush(stale);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT last_seen FROM users WHERE id = ?", Timestamp.class, id)
+                .toInstant()).isEqualTo(flushed);
+        assertThat(jdbcTemplate.queryForObject("SELECT full_name FROM users WHERE id = ?", String.class, id))
+                .isEqualTo("Nome novo");
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.wellbeing.security;
+
+import com.example.wellbeing.model.User;
+import com.example.wellbeing.repository.UserRepository;
+import com.example.wellbeing.service.CustomUserDetailsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtPrincipalResolverTest {
+
+    private static final long USER_ID = 7L;
+
+    private final JwtUtil jwtUtil = new JwtUtil();
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final CustomUserDetailsService userDetailsService = mock(CustomUserDetailsService.class);
+    private TokenRevocationCache revocationCache;
+
+    @BeforeEach
+    void setUp() {
+        revocationCache = new TokenRevocationCache(userRepository, mock(JdbcTemplate.class), jwtUtil, 100);
+    }
+
+    @Test
+    void tokenWithoutVersionIssuedBeforeLogoutIsRejected() {
+        String legacy = jwtUtil.generateTokenWithRole("ana", "PATIENT");
+        User user = user(1L);
+        user.setTokensRevokedAt(Instant.now().plus(1, ChronoUnit.SECONDS));
+        when(userDetailsService.loadUserByUsername("ana")).thenReturn(new CustomUserPrincipal(user));
+
+        assertThat(resolver(false, "").resolve(jwtUtil.parseToken(legacy))).isNull();
+    }
+
+    @Test
+    void tokenWithoutVersionIsAcceptedOnlyUntilTheCutOver() {
+        String legacy = jwtUtil.generateTokenWithRole("ana", "PATIENT");
+        when(userDetailsService.loadUserByUsername("ana")).thenReturn(new CustomUserPrincipal(user(0L)));
+
+        String tomorrow = Instant.now().plus(1, ChronoUnit.DAYS).toString();
+        String yesterday = Instant.now().minus(1, ChronoUnit.DAYS).toString();
+        assertThat(resolver(false, tomorrow).resolve(jwtUtil.parseToken(legacy))).isNotNull();
+        assertThat(resolver(false, yesterday).resolve(jwtUtil.parseToken(legacy))).isNull();
+    }
+
+    @Test
+    void tokenOfDeletedAccountDoesNotAuthenticateARecreatedUsername() {
+        String token = jwtUtil.generateToken(user(0L));
+        User recreated = user(0L);
+        recreated.setId(99L);
+        when(userDetailsService.loadUserByUsername("ana")).thenReturn(new CustomUserPrincipal(recreated));
+
+        assertThat(resolver(false, "").resolve(jwtUtil.parseToken(token))).isNull();
+    }
+
+    @Test
+    void statelessModeSeesLogoutFromAnotherNodeAfterRefresh() {
+        String token = jwtUtil.generateToken(user(0L));
+        JwtPrincipalResolver stateless = resolver(true, "");
+        assertThat(stateless.resolve(jwtUtil.parseToken(token))).isNotNull();
+
+        // Logout feito em outro nó: só o banco sabe
+        User loggedOut = user(1L);
+        loggedOut.setTokensRevokedAt(Instant.now());
+        when(userRepository.findByTokensRevokedAtAfter(any(Instant.class))).thenReturn(List.of(loggedOut));
+        when(userDetailsService.loadUserByUsername("ana")).thenReturn(new CustomUserPrincipal(loggedOut));
+        revocationCache.refresh();
+
+        assertThat(revocationCache.isRevoked(USER_ID, 0L)).isTrue();
+        assertThat(stateless.resolve(jwtUtil.parseToken(token))).isNull();
+    }
+
+    private JwtPrincipalResolver resolver(boolean stateless, String legacyTokensUntil) {
+        return new JwtPrincipalResolver(jwtUtil, userDetailsService, revocationCache, stateless, legacyTokensUntil);
+    }
+
+    private static User user(long tokenVersion) {
+        User user = new User("ana", "ana@example.com", "x", "Ana", "PATIENT");
+        user.setId(USER_ID);
+        user.setTokenVersion(tokenVersion);
+        return user;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.wellbeing.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Custo da autenticação JWT por requisição, antes e depois do cache de claims:
+ *
+ * - antes: o filtro fazia 3 parses completos (extractUsername + validateToken),
+ *   cada um decodificando a chave e montando um parser novo;
+ * - depois, token novo: 1 parse com chave e parser prontos;
+ * - depois, token repetido: só SHA-256 do token e leitura do cache.
+ *
+ * mvn -Pbenchmarks test
+ */
+@Tag("benchmark")
+class JwtVerificationBenchmarkTest {
+
+    // Mesma chave de JwtUtil, para reproduzir o caminho antigo
+    private static final String SECRET_KEY = "5A7134743777217A25432A462D4A614E645267556B58703273357638792F423F";
+    private static final int TOKENS = 5_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    void compareVerificationPaths() {
+        JwtUtil issuer = new JwtUtil();
+        String[] tokens = new String[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            tokens[i] = issuer.generateTokenWithRole("user" + i, "PATIENT");
+        }
+
+        double before = measure(i -> {
+            String token = tokens[i];
+            String username = legacyParse(token).getSubject();
+            boolean valid = legacyParse(token).getSubject().equals(username)
+                    && !legacyParse(token).getExpiration().before(new Date());
+            assertThat(valid).isTrue();
+        });
+
+        JwtUtil[] cold = {new JwtUtil()};
+        double afterMiss = measure(i -> {
+            // Um JwtUtil novo por passada: todo token é inédito para o cache
+            if (i == 0) cold[0] = new JwtUtil();
+            Claims claims = cold[0].parseToken(tokens[i]);
+            assertThat(cold[0].validateClaims(claims, claims.getSubject())).isTrue();
+        });
+
+        JwtUtil warm = new JwtUtil();
+        for (String token : tokens) warm.parseToken(token);
+        double afterHit = measure(i -> {
+            Claims claims = warm.parseToken(tokens[i]);
+            assertThat(warm.validateClaims(claims, claims.getSubject())).isTrue();
+        });
+
+        System.out.printf("antes (3 parses, chave por chamada): %8.2f us/req%n", before);
+        System.out.printf("depois, token novo (1 parse):        %8.2f us/req%n", afterMiss);
+        System.out.printf("depois, token em cache:              %8.2f us/req%n", afterHit);
+
+        assertThat(afterMiss).isLessThan(before);
+        assertThat(afterHit).isLessThan(afterMiss);
+    }
+
+    private static Claims legacyParse(String token) {
+        Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY));
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+    }
+
+    // Microssegundos por requisição, melhor passada depois de uma de aquecimento
+    private static double measure(IntConsumer request) {
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round <= ROUNDS; round++) {
+            long startedAt = System.nanoTime();
+            for (int i = 0; i < TOKENS; i++) {
+                request.accept(i);
+            }
+            double perRequest = (System.nanoTime() - startedAt) / 1_000.0 / TOKENS;
+            if (round > 0) best = Math.min(best, perRequest);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.wellbeing.security;
+
+import com.example.wellbeing.model.Chat;
+import com.example.wellbeing.model.User;
+import com.example.wellbeing.repository.ChatRepository;
+import com.example.wellbeing.repository.UserRepository;
+import com.example.wellbeing.service.CustomUserDetailsService;
+import com.example.wellbeing.service.PresenceRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebSocketAuthInterceptorTest {
+
+    private static final long USER_ID = 7L;
+    private static final long OTHER_ID = 8L;
+
+    private final JwtUtil jwtUtil = new JwtUtil();
+    private ChatRepository chatRepository;
+    private CustomUserDetailsService userDetailsService;
+    private TokenRevocationCache revocationCache;
+    private WebSocketAuthInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        chatRepository = mock(ChatRepository.class);
+        userDetailsService = mock(CustomUserDetailsService.class);
+        revocationCache = new TokenRevocationCache(mock(UserRepository.class), mock(JdbcTemplate.class), jwtUtil, 100);
+        interceptor = interceptor(false);
+
+        Chat own = new Chat();
+        own.setPatientId(USER_ID);
+        own.setDoctorId(OTHER_ID);
+        Chat foreign = new Chat();
+        foreign.setPatientId(20L);
+        foreign.setDoctorId(21L);
+        when(chatRepository.findById(1L)).thenReturn(Optional.of(own));
+        when(chatRepository.findById(2L)).thenReturn(Optional.of(foreign));
+        when(chatRepository.existsBetween(USER_ID, OTHER_ID)).thenReturn(true);
+    }
+
+    private WebSocketAuthInterceptor interceptor(boolean stateless) {
+        JwtPrincipalResolver resolver = new JwtPrincipalResolver(jwtUtil, userDetailsService, revocationCache, stateless, "");
+        return new WebSocketAuthInterceptor(jwtUtil, resolver, chatRepository, mock(PresenceRegistry.class));
+    }
+
+    @Test
+    void connectWithCurrentTokenVersionAuthenticates() {
+        User user = user(3L);
+        when(userDetailsService.loadUserByUsername("ana")).thenReturn(new CustomUserPrincipal(user));
+
+        StompHeaderAccessor accessor = connect(jwtUtil.generateToken(user));
+        interceptor.preSend(toMessage(accessor), null);
+
+        assertThat(accessor.getSessionAttributes()).containsEntry(WebSocketAuthInterceptor.USER_ID_ATTRIBUTE, USER_ID);
+        assertThat(accessor.getUser().getName()).isEqualTo("ana");
+    }
+
+    @Test
+    void connectWithTokenFromBeforeLogoutIsDenied() {
+        String oldToken = jwtUtil.generateToken(user(3L));
+        // Logout incrementou a versão
+        when(userDetailsService.loadUserByUsername("ana")).thenReturn(new CustomUserPrincipal(user(4L)));
+
+        assertThatThrownBy(() -> interceptor.preSend(toMessage(connect(oldToken)), null))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void statelessConnectChecksRevocationCache() {
+        WebSocketAuthInterceptor stateless = interceptor(true);
+        String token = jwtUtil.generateToken(user(3L));
+
+        StompHeaderAccessor accessor = connect(token);
+        stateless.preSend(toMessage(accessor), null);
+        assertThat(accessor.getSessionAttributes()).containsEntry(WebSocketAuthInterceptor.USER_ID_ATTRIBUTE, USER_ID);
+
+        revocationCache.revoke(USER_ID, 4L);
+        // Revogado no cache: cai para o banco, que também tem a versão nova
+        when(userDetailsService.loadUserByUsername("ana")).thenReturn(new CustomUserPrincipal(user(4L)));
+        assertThatThrownBy(() -> stateless.preSend(toMessage(connect(token)), null))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void statelessConnectDoesNotQueryTheDatabase() {
+        interceptor(true).preSend(toMessage(connect(jwtUtil.generateToken(user(3L)))), null);
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void participantSubscribesToOwnChat() {
+        assertThatCode(() -> send(StompCommand.SUBSCRIBE, "/topic/chats/1")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void nonParticipantIsDenied() {
+        assertThatThrownBy(() -> send(StompCommand.SUBSCRIBE, "/topic/chats/2"))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/topic/presence/7", "/topic/presence/8"})
+    void ownAndCounterpartPresenceAreAllowed(String destination) {
+        assertThatCode(() -> send(StompCommand.SUBSCRIBE, destination)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void presenceOfUserWithoutChatIsDenied() {
+        assertThatThrownBy(() -> send(StompCommand.SUBSCRIBE, "/topic/presence/21"))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void userQueueIsAllowed() {
+        assertThatCode(() -> send(StompCommand.SUBSCRIBE, "/user/queue/chats/resume")).doesNotThrowAnyException();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/topic/chats/*", "/topic/chats/**", "/topic/**", "/topic/chats/{id}",
+            "/topic/chats/1/../2", "/topic/chats/1x", "/topic/chats/", "/topic/other", "/queue/anything",
+            "/user/queue/*", "/user/7/queue/chats/resume", "/topic/presence/*", "/topic/presence/**",
+            "/topic/presence/{id}", "/topic/presence/", "/topic/presence/+8", "/topic/presence/8/x",
+            "/topic/presence/7/../8", "/topic/presence/99999999999999999999", ""})
+    void anythingElseIsDeniedOnSubscribe(String destination) {
+        assertThatThrownBy(() -> send(StompCommand.SUBSCRIBE, destination))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void sendToApplicationIsAllowed() {
+        assertThatCode(() -> send(StompCommand.SEND, "/app/chats/1/resume")).doesNotThrowAnyException();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/topic/chats/1", "/queue/chats/resume", "/user/queue/chats/resume", "/app/../topic/chats/1"})
+    void sendToBrokerIsDenied(String destination) {
+        assertThatThrownBy(() -> send(StompCommand.SEND, destination))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void unauthenticatedSessionIsDenied() {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+        accessor.setDestination("/app/chats/1/resume");
+        accessor.setSessionAttributes(new HashMap<>());
+        assertThatThrownBy(() -> interceptor.preSend(toMessage(accessor), null))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    private static User user(long tokenVersion) {
+        User user = new User("ana", "ana@example.com", "x", "Ana", "PATIENT");
+        user.setId(USER_ID);
+        user.setTokenVersion(tokenVersion);
+        return user;
+    }
+
+    private static StompHeaderAccessor connect(String token) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.addNativeHeader("Authorization", "Bearer " + token);
+        accessor.setSessionAttributes(new HashMap<>());
+        return accessor;
+    }
+
+    private void send(StompCommand command, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setDestination(destination);
+        Map<String, Object> session = new HashMap<>();
+        session.put(WebSocketAuthInterceptor.USER_ID_ATTRIBUTE, USER_ID);
+        accessor.setSessionAttributes(session);
+        interceptor.preSend(toMessage(accessor), null);
+    }
+
+    private static Message<byte[]> toMessage(StompHeaderAccessor accessor) {
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.dto.MessageResponse;
+import com.example.wellbeing.model.Message;
+import com.example.wellbeing.model.User;
+import com.example.wellbeing.repository.ChatRepository;
+import com.example.wellbeing.repository.MessageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatMessageWriterTest {
+
+    // Horário de quando o controller montou a mensagem: não pode ir para o banco
+    private static final Instant BUILT_AT = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final ChatRepository chatRepository = mock(ChatRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    private ChatMessageWriter writer;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        if (writer != null) writer.stop();
+    }
+
+    @Test
+    void directWriteStampsCreatedAtAtInsert() throws Exception {
+        when(messageRepository.save(any(Message.class))).thenAnswer(call -> call.getArgument(0));
+        writer = writer(false);
+
+        Instant before = Instant.now();
+        MessageResponse response = writer.write(message(), sender());
+
+        assertThat(response.getCreatedAt()).isAfterOrEqualTo(before);
+        verify(chatRepository).recordMessage(eq(1L), eq(1L), anyString(), eq(7L), eq(response.getCreatedAt()));
+    }
+
+    @Test
+    void groupCommitStampsCreatedAtAtInsert() throws Exception {
+        when(messageRepository.saveAll(anyList())).thenAnswer(call -> call.getArgument(0));
+        writer = writer(true);
+        writer.start();
+
+        Instant before = Instant.now();
+        MessageResponse response = writer.write(message(), sender());
+
+        assertThat(response.getCreatedAt()).isAfterOrEqualTo(before);
+        verify(chatRepository).recordMessages(eq(1L), eq(1L), anyString(), eq(7L), eq(response.getCreatedAt()), anyLong());
+    }
+
+    @Test
+    void concurrentSendersShareOneTransaction() throws Exception {
+        int senders = 8;
+        assignIdsOnSaveAll();
+        // O grupo só fecha quando os 8 chegam: um commit para todos
+        writer = new ChatMessageWriter(messageRepository, chatRepository, mock(ApplicationEventPublisher.class),
+                transactionTemplate, true, senders, 10_000, 100, 15_000);
+        writer.start();
+
+        List<MessageResponse> responses = sendConcurrently(senders,
+                i -> () -> writer.write(message((long) (i % 2) + 1, "m" + i), sender()));
+
+        assertThat(responses).extracting(MessageResponse::getId).doesNotHaveDuplicates().doesNotContainNull();
+        verify(messageRepository, times(1)).saveAll(anyList());
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(transactionManager, times(1)).commit(any());
+        // Um UPDATE por chat, com o total do grupo
+        verify(chatRepository).recordMessages(eq(1L), anyLong(), anyString(), eq(7L), any(), eq(4L));
+        verify(chatRepository).recordMessages(eq(2L), anyLong(), anyString(), eq(7L), any(), eq(4L));
+    }
+
+    @Test
+    void messagesOfAChatKeepSendOrder() throws Exception {
+        assignIdsOnSaveAll();
+        writer = new ChatMessageWriter(messageRepository, chatRepository, mock(ApplicationEventPublisher.class),
+                transactionTemplate, true, 100, 1, 100, 5000);
+        writer.start();
+
+        // Um remetente por chat enviando em sequência, os dois chats ao mesmo tempo
+        List<List<MessageResponse>> perChat = sendConcurrently(2, chat -> () -> {
+            List<MessageResponse> sent = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                sent.add(writer.write(message((long) chat + 1, "c" + chat + "-" + i), sender()));
+            }
+            return sent;
+        });
+
+        for (int chat = 0; chat < 2; chat++) {
+            List<MessageResponse> sent = perChat.get(chat);
+            ArgumentCaptor<Long> lastIds = ArgumentCaptor.forClass(Long.class);
+            for (int i = 1; i < sent.size(); i++) {
+                assertThat(sent.get(i).getId()).isGreaterThan(sent.get(i - 1).getId());
+                assertThat(sent.get(i).getCreatedAt()).isAfterOrEqualTo(sent.get(i - 1).getCreatedAt());
+            }
+            verify(chatRepository, atLeastOnce()).recordMessages(eq((long) chat + 1), lastIds.capture(),
+                    anyString(), anyLong(), any(), anyLong());
+            // A prévia termina na última mensagem enviada
+            assertThat(lastIds.getValue()).isEqualTo(sent.get(sent.size() - 1).getId());
+        }
+    }
+
+    @Test
+    void failedGroupOnlyFailsTheBadMessage() throws Exception {
+        int senders = 3;
+        when(messageRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("chat removido"));
+        AtomicLong ids = new AtomicLong();
+        when(messageRepository.save(any(Message.class))).thenAnswer(call -> {
+            Message message = call.getArgument(0);
+            if ("ruim".equals(message.getContent())) throw new DataIntegrityViolationException("chat removido");
+            message.setId(ids.incrementAndGet());
+            return message;
+        });
+        writer = new ChatMessageWriter(messageRepository, chatRepository, mock(ApplicationEventPublisher.class),
+                transactionTemplate, true, senders, 10_000, 100, 15_000);
+        writer.start();
+
+        List<Object> outcomes = sendConcurrently(senders, i -> () -> {
+            try {
+                return writer.write(message(1L, i == 1 ? "ruim" : "ok" + i), sender());
+            } catch (DataIntegrityViolationException e) {
+                return e;
+            }
+        });
+
+        assertThat(outcomes).filteredOn(DataIntegrityViolationException.class::isInstance).hasSize(1);
+        assertThat(outcomes).filteredOn(MessageResponse.class::isInstance).hasSize(2)
+                .extracting(r -> ((MessageResponse) r).getContent()).doesNotContain("ruim");
+        verify(messageRepository, times(senders)).save(any(Message.class));
+    }
+
+    @Test
+    void retryWithSameClientIdReturnsTheStoredMessage() throws Exception {
+        Message stored = message(1L, "oi");
+        stored.setId(42L);
+        stored.setClientMessageId("c-1");
+        when(messageRepository.findBySenderIdAndClientMessageId(7L, "c-1")).thenReturn(Optional.of(stored));
+        writer = writer(false);
+
+        Message retry = message(1L, "oi");
+        retry.setId(null);
+        retry.setClientMessageId("c-1");
+        MessageResponse response = writer.write(retry, sender());
+
+        assertThat(response.getId()).isEqualTo(42L);
+        verify(messageRepository, never()).save(any(Message.class));
+    }
+
+    @Test
+    void concurrentRetryLosingTheInsertRaceReturnsTheWinner() throws Exception {
+        Message stored = message(1L, "oi");
+        stored.setId(42L);
+        when(messageRepository.findBySenderIdAndClientMessageId(7L, "c-1"))
+                .thenReturn(Optional.empty(), Optional.of(stored));
+        when(messageRepository.save(any(Message.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_messages_sender_client_id"));
+        writer = writer(false);
+
+        Message retry = message(1L, "oi");
+        retry.setClientMessageId("c-1");
+
+        assertThat(writer.write(retry, sender()).getId()).isEqualTo(42L);
+    }
+
+    @Test
+    void slowGroupCommitIsReportedAsPending() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(messageRepository.saveAll(anyList())).thenAnswer(call -> {
+            release.await(5, TimeUnit.SECONDS);
+            return call.getArgument(0);
+        });
+        writer = new ChatMessageWriter(messageRepository, chatRepository, mock(ApplicationEventPublisher.class),
+                transactionTemplate, true, 100, 0, 100, 100);
+        writer.start();
+
+        try {
+            assertThatThrownBy(() -> writer.write(message(), sender())).isInstanceOf(TimeoutException.class);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private ChatMessageWriter writer(boolean groupCommit) {
+        return new ChatMessageWriter(messageRepository, chatRepository, mock(ApplicationEventPublisher.class),
+                transactionTemplate, groupCommit, 100, 0, 100, 5000);
+    }
+
+    // Ids do sequence em ordem de lista, como o insert em lote
+    private void assignIdsOnSaveAll() {
+        AtomicLong ids = new AtomicLong();
+        when(messageRepository.saveAll(anyList())).thenAnswer(call -> {
+            List<Message> messages = call.getArgument(0);
+            messages.forEach(m -> m.setId(ids.incrementAndGet()));
+            return messages;
+        });
+    }
+
+    private <T> List<T> sendConcurrently(int clients, IntFunction<Callable<T>> send) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                futures.add(pool.submit(send.apply(i)));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(20, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Message message() {
+        Message message = message(1L, "oi");
+        message.setId(1L);
+        return message;
+    }
+
+    private static Message message(Long chatId, String content) {
+        Message message = new Message();
+        message.setChatId(chatId);
+        message.setSenderId(7L);
+        message.setSenderRole("PATIENT");
+        message.setContent(content);
+        message.setCreatedAt(BUILT_AT);
+        return message;
+    }
+
+    private static User sender() {
+        User user = new User("ana", "ana@example.com", "x", "Ana", "PATIENT");
+        user.setId(7L);
+        return user;
+    }
+}
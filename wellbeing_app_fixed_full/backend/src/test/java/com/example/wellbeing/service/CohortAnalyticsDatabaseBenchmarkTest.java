@@ -0,0 +1,134 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.PostgresIntegrationTest;
+import com.example.wellbeing.dto.CohortTrendView;
+import com.example.wellbeing.repository.DailyLogDayStatsRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Coorte de ponta a ponta no PostgreSQL: 10.000 pacientes com um resumo por
+ * dia nos últimos 365 dias (3,65M linhas em daily_log_day_stats). Mede a
+ * consulta de streaming sozinha (streamCohortDays, lida até o fim) e
+ * CohortAnalyticsService.analyze inteiro (consulta + arrays + pontuação +
+ * nomes), para as janelas padrão e máxima. O CohortScoringBenchmarkTest
+ * mede só a pontuação em memória.
+ *
+ * mvn -Pbenchmarks test, com PostgreSQL (TEST_DATABASE_URL ou Docker).
+ */
+@Tag("benchmark")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(CohortAnalyticsService.class)
+class CohortAnalyticsDatabaseBenchmarkTest extends PostgresIntegrationTest {
+
+    private static final int PATIENTS = 10_000;
+    private static final int DAYS = CohortAnalyticsService.MAX_DAYS;
+    private static final int RUNS = 5;
+    // Médico inexistente: os chats do benchmark são apagados no fim
+    private static final long DOCTOR_ID = -777L;
+
+    @Autowired
+    private CohortAnalyticsService service;
+
+    @Autowired
+    private DailyLogDayStatsRepository statsRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void seed() {
+        cleanUp();
+        jdbcTemplate.update("INSERT INTO users (id, username, email, password, full_name, role, created_at) " +
+                "SELECT nextval('users_seq'), 'cohort-bench-' || n, 'cohort-bench-' || n || '@example.com', 'x', " +
+                "'Paciente ' || n, 'PATIENT', now() FROM generate_series(1, ?) AS n", PATIENTS);
+        jdbcTemplate.update("INSERT INTO chats (id, patient_id, doctor_id, title, updated_at) " +
+                "SELECT nextval('chats_seq'), u.id, ?, 'Coorte', now() FROM users u " +
+                "WHERE u.username LIKE 'cohort-bench-%'", DOCTOR_ID);
+        // Um resumo por paciente e dia, valores 0-10 variando por paciente e dia
+        jdbcTemplate.update("INSERT INTO daily_log_day_stats (user_id, log_day, log_count, " +
+                "pain_count, pain_sum, sleep_count, sleep_sum, mood_count, mood_sum, updated_at) " +
+                "SELECT c.patient_id, CURRENT_DATE - d, 1, 1, (c.patient_id + d) % 11, 1, (c.patient_id * 7 + d) % 11, " +
+                "1, (c.patient_id * 3 + d) % 11, now() " +
+                "FROM chats c CROSS JOIN generate_series(0, ?) AS d WHERE c.doctor_id = ?", DAYS - 1, DOCTOR_ID);
+        jdbcTemplate.execute("ANALYZE chats");
+        jdbcTemplate.execute("ANALYZE daily_log_day_stats");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM daily_log_day_stats WHERE user_id IN " +
+                "(SELECT patient_id FROM chats WHERE doctor_id = ?)", DOCTOR_ID);
+        jdbcTemplate.update("DELETE FROM chats WHERE doctor_id = ?", DOCTOR_ID);
+        jdbcTemplate.update("DELETE FROM users WHERE username LIKE 'cohort-bench-%'");
+    }
+
+    @Test
+    void streamAndScoreTenThousandPatientsForAYear() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        for (int days : new int[] {CohortAnalyticsService.DEFAULT_DAYS, DAYS}) {
+            LocalDate from = LocalDate.now().minusDays(days - 1);
+            AtomicLong rows = new AtomicLong();
+            double streamMs = medianMillis(() -> readOnly.execute(status -> {
+                try (Stream<Object[]> stream = statsRepo.streamCohortDays(DOCTOR_ID, from)) {
+                    rows.set(stream.count());
+                }
+                return rows.get();
+            }));
+
+            CohortTrendView[] last = new CohortTrendView[1];
+            double analyzeMs = medianMillis(() -> {
+                last[0] = service.analyze(DOCTOR_ID, days);
+                return last[0].patientCount();
+            });
+
+            System.out.printf("dias=%3d pacientes=%5d linhas=%8d  streamCohortDays=%8.1f ms (%.0f ns/linha)  " +
+                            "analyze=%8.1f ms (%.0f ns/linha)%n",
+                    days, last[0].patientCount(), rows.get(), streamMs, streamMs * 1e6 / rows.get(),
+                    analyzeMs, analyzeMs * 1e6 / rows.get());
+
+            assertThat(rows.get()).isEqualTo((long) PATIENTS * days);
+            assertThat(last[0].patientCount()).isEqualTo(PATIENTS);
+            assertThat(last[0].patients()).allSatisfy(p -> assertThat(p.daysLogged()).isEqualTo(days));
+        }
+    }
+
+    // Mediana de RUNS execuções, depois de uma de aquecimento
+    private static double medianMillis(LongSupplier task) {
+        task.getAsLong();
+        double[] samples = new double[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long startedAt = System.nanoTime();
+            task.getAsLong();
+            samples[i] = (System.nanoTime() - startedAt) / 1e6;
+        }
+        Arrays.sort(samples);
+        return samples[RUNS / 2];
+    }
+}
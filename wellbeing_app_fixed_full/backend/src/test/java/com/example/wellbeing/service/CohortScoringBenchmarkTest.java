@@ -0,0 +1,68 @@
+package com.example.wellbeing.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Pontuação da coorte em sequência versus em paralelo (ForkJoinPool comum),
+ * por número de pacientes, para escolher PARALLEL_MIN_ROWS de
+ * CohortAnalyticsService. Cada paciente tem um registro por dia na janela;
+ * o maior caso (10.000 pacientes x 365 dias) é o mesmo do
+ * CohortAnalyticsDatabaseBenchmarkTest, que mede a consulta junto.
+ *
+ * mvn -Pbenchmarks test
+ */
+@Tag("benchmark")
+class CohortScoringBenchmarkTest {
+
+    private static final int[] PATIENTS = {16, 32, 64, 128, 256, 512, 1024, 4096, 10_000};
+    private static final int[] WINDOWS = {CohortAnalyticsService.DEFAULT_DAYS, CohortAnalyticsService.MAX_DAYS};
+    private static final long BUDGET_NANOS = 300_000_000L;
+
+    @Test
+    void compareSequentialAndParallel() {
+        System.out.printf("processadores: %d%n", Runtime.getRuntime().availableProcessors());
+        for (int days : WINDOWS) {
+            for (int patients : PATIENTS) {
+                CohortAnalyticsService.CohortSeries series = series(patients, days);
+                int recentStart = days - CohortAnalyticsService.RECENT_DAYS;
+
+                double sequential = measure(() -> CohortAnalyticsService.scoreAll(series, recentStart, false));
+                double parallel = measure(() -> CohortAnalyticsService.scoreAll(series, recentStart, true));
+                System.out.printf("dias=%3d pacientes=%5d  linhas=%8d  sequencial=%9.1f us (%.1f ns/linha)  paralelo=%9.1f us%n",
+                        days, patients, series.rowCount(), sequential, sequential * 1_000 / series.rowCount(), parallel);
+            }
+        }
+    }
+
+    private static CohortAnalyticsService.CohortSeries series(int patients, int days) {
+        Random random = new Random(42);
+        CohortAnalyticsService.CohortSeries series = new CohortAnalyticsService.CohortSeries();
+        for (int p = 0; p < patients; p++) {
+            for (int d = 0; d < days; d++) {
+                series.add(new Object[] {(long) p + 1, d,
+                        random.nextDouble() * 10, random.nextDouble() * 10, random.nextDouble() * 10});
+            }
+        }
+        series.finish();
+        return series;
+    }
+
+    // Mediana em microssegundos, depois de aquecer o JIT e o pool
+    private static double measure(Runnable task) {
+        long warmupUntil = System.nanoTime() + BUDGET_NANOS;
+        while (System.nanoTime() < warmupUntil) task.run();
+
+        double[] samples = new double[51];
+        for (int i = 0; i < samples.length; i++) {
+            long startedAt = System.nanoTime();
+            task.run();
+            samples[i] = (System.nanoTime() - startedAt) / 1_000.0;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+}
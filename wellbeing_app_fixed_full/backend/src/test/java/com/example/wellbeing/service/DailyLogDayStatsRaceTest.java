@@ -0,0 +1,113 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.PostgresIntegrationTest;
+import com.example.wellbeing.dto.DailyLogDTO;
+import com.example.wellbeing.model.User;
+import com.example.wellbeing.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Duas gravações no mesmo dia, a segunda recalculando o resumo enquanto a
+ * primeira ainda não commitou: o resumo final conta as duas. Sem a trava do
+ * usuário, o upsert da segunda esperava a linha da primeira e gravava por
+ * cima o total do seu próprio snapshot (log_count = 1).
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DailyLogService.class, DailyLogStatsService.class})
+class DailyLogDayStatsRaceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private DailyLogService service;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long userId;
+
+    @BeforeEach
+    void createUser() {
+        userId = userRepository.save(new User("stats-race", "stats-race@example.com", "x", "Stats", "PATIENT")).getId();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM daily_logs WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM daily_log_day_stats WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+    }
+
+    @Test
+    void overlappingWritesOnTheSameDayKeepTheRollupExact() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        CountDownLatch firstRefreshed = new CountDownLatch(1);
+        CountDownLatch secondStarted = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> tx.executeWithoutResult(status -> {
+            service.save(dto(4));
+            firstRefreshed.countDown();
+            await(secondStarted);
+            // Segura o commit enquanto a segunda gravação recalcula o mesmo dia
+            sleep(300);
+        }));
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> {
+            await(firstRefreshed);
+            secondStarted.countDown();
+            service.save(dto(8));
+        });
+        CompletableFuture.allOf(first, second).get(30, TimeUnit.SECONDS);
+
+        assertThat(jdbcTemplate.queryForMap(
+                "SELECT log_count, pain_count, pain_sum FROM daily_log_day_stats WHERE user_id = ?", userId))
+                .containsEntry("log_count", 2)
+                .containsEntry("pain_count", 2)
+                .containsEntry("pain_sum", 12L);
+    }
+
+    private DailyLogDTO dto(int pain) {
+        DailyLogDTO dto = new DailyLogDTO();
+        dto.userId = userId;
+        dto.painLevel = pain;
+        return dto;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.PostgresIntegrationTest;
+import com.example.wellbeing.dto.DailyLogBatchResult;
+import com.example.wellbeing.dto.DailyLogDTO;
+import com.example.wellbeing.model.DailyLog;
+import com.example.wellbeing.model.User;
+import com.example.wellbeing.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reenvios simultâneos com a mesma idempotencyKey: todos recebem o mesmo
+ * registro e só uma linha é gravada, em vez de erro de chave duplicada.
+ * Sem transação do teste, para que as requisições concorrentes realmente
+ * disputem o commit.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DailyLogService.class, DailyLogStatsService.class})
+class DailyLogIdempotencyRaceTest extends PostgresIntegrationTest {
+
+    private static final int CLIENTS = 8;
+
+    @Autowired
+    private DailyLogService service;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long userId;
+
+    @BeforeEach
+    void createUser() {
+        userId = userRepository.save(new User("idem-race", "idem-race@example.com", "x", "Idem", "PATIENT")).getId();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM daily_logs WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM daily_log_day_stats WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+    }
+
+    @Test
+    void concurrentSavesWithSameKeyReturnOneRow() throws Exception {
+        List<DailyLog> saved = race(i -> () -> service.save(dto("k-single")));
+
+        assertThat(saved).extracting(DailyLog::getId).containsOnly(saved.get(0).getId());
+        assertThat(rows()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentBatchesKeepTheirNewItems() throws Exception {
+        List<DailyLogBatchResult> results = race(i -> () -> service.saveBatch(userId,
+                List.of(dto("k-a"), dto("k-b"), dto("k-client-" + i))));
+
+        for (DailyLogBatchResult result : results) {
+            assertThat(result.items()).hasSize(3);
+            // O item exclusivo de cada cliente nunca se perde por causa das chaves disputadas
+            assertThat(result.items().get(2).duplicate()).isFalse();
+        }
+        assertThat(results).extracting(r -> r.items().get(0).id()).containsOnly(results.get(0).items().get(0).id());
+        assertThat(rows()).isEqualTo(2 + CLIENTS);
+    }
+
+    private <T> List<T> race(IntFunction<Callable<T>> request) throws Exception {
+        CyclicBarrier start = new CyclicBarrier(CLIENTS);
+        ExecutorService pool = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                Callable<T> call = request.apply(i);
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return call.call();
+                }));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private int rows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM daily_logs WHERE user_id = ?", Integer.class, userId);
+    }
+
+    private DailyLogDTO dto(String key) {
+        DailyLogDTO dto = new DailyLogDTO();
+        dto.userId = userId;
+        dto.painLevel = 4;
+        dto.mood = 6;
+        dto.idempotencyKey = key;
+        return dto;
+    }
+}
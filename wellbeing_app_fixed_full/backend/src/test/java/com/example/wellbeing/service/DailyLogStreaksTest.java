@@ -0,0 +1,112 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.PostgresIntegrationTest;
+import com.example.wellbeing.dto.DailyLogStatsView;
+import com.example.wellbeing.model.DailyLog;
+import com.example.wellbeing.model.User;
+import com.example.wellbeing.repository.DailyLogRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * streak_days é mantido a cada gravação; as sequências atual e máxima têm que
+ * bater com a contagem feita sobre todas as datas, inclusive com dias
+ * gravados fora de ordem e dias apagados no meio de uma sequência.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(DailyLogStatsService.class)
+class DailyLogStreaksTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private DailyLogRepository logRepository;
+
+    @Autowired
+    private DailyLogStatsService statsService;
+
+    private final LocalDate today = LocalDate.now();
+    private User user;
+
+    @BeforeEach
+    void createUser() {
+        user = entityManager.persist(new User("streaks", "streaks@example.com", "x", "Streaks", "PATIENT"));
+    }
+
+    @Test
+    void streaksFollowInsertsOutOfOrderAndDeletes() {
+        for (int daysAgo : new int[] {0, 1, 5, 8, 9, 10}) {
+            log(daysAgo);
+        }
+        assertStreaks(2, 3);
+
+        // Dia antigo que une duas sequências: 10..7 vira uma só
+        log(7);
+        assertStreaks(2, 4);
+
+        // Lote com dias fora de ordem
+        DailyLog a = newLog(3);
+        DailyLog b = newLog(4);
+        DailyLog c = newLog(2);
+        logRepository.saveAllAndFlush(List.of(a, b, c));
+        statsService.refreshDays(user.getId(), List.of(today.minusDays(3), today.minusDays(4), today.minusDays(2)));
+        assertStreaks(6, 6);
+
+        // Apagar um dia no meio quebra a sequência atual
+        logRepository.delete(a);
+        logRepository.flush();
+        statsService.refreshDay(user.getId(), a.getCreatedAt());
+        assertStreaks(3, 4);
+    }
+
+    @Test
+    void noLogsTodayOrYesterdayMeansNoCurrentStreak() {
+        log(3);
+        log(4);
+        DailyLogStatsView stats = statsService.getStats(user.getId());
+        assertThat(stats.currentStreak()).isZero();
+        assertThat(stats.longestStreak()).isEqualTo(2);
+        assertThat(stats.lastLogDay()).isEqualTo(today.minusDays(3));
+    }
+
+    @Test
+    void historyOlderThanTheWindowStillCounts() {
+        log(400);
+        log(401);
+        log(402);
+        DailyLogStatsView stats = statsService.getStats(user.getId());
+        assertThat(stats.longestStreak()).isEqualTo(3);
+        assertThat(stats.lastLogDay()).isEqualTo(today.minusDays(400));
+    }
+
+    private void assertStreaks(int current, int longest) {
+        entityManager.clear();
+        DailyLogStatsView stats = statsService.getStats(user.getId());
+        assertThat(stats.currentStreak()).as("sequência atual").isEqualTo(current);
+        assertThat(stats.longestStreak()).as("maior sequência").isEqualTo(longest);
+    }
+
+    private void log(int daysAgo) {
+        DailyLog saved = logRepository.saveAndFlush(newLog(daysAgo));
+        statsService.refreshDay(user.getId(), saved.getCreatedAt());
+    }
+
+    private DailyLog newLog(int daysAgo) {
+        DailyLog log = new DailyLog(user, 3, 4, 5, null, null, null, null, null, null);
+        log.setCreatedAt(today.minusDays(daysAgo).atTime(12, 0));
+        log.setUpdatedAt(log.getCreatedAt());
+        return log;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.model.ProfileImage;
+import com.example.wellbeing.repository.ProfileImageRepository;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ThumbnailServiceTest {
+
+    private final ProfileImageRepository repository = mock(ProfileImageRepository.class);
+    private final ThumbnailService service = new ThumbnailService(repository);
+
+    @Test
+    void generatesEverySizeForANormalImage() throws IOException {
+        when(repository.findById("abc")).thenReturn(Optional.of(new ProfileImage("abc", "image/png", png(600, 400))));
+
+        service.generate("abc");
+
+        verify(repository, times(ThumbnailService.SIZES.length)).save(any(ProfileImage.class));
+    }
+
+    @Test
+    void rejectsDecompressionBombBeforeDecoding() throws IOException {
+        // Poucos bytes no arquivo, 50.000 x 50.000 px declarados no cabeçalho
+        byte[] bomb = withDeclaredSize(png(1, 1), 50_000, 50_000);
+        when(repository.findById("bomb")).thenReturn(Optional.of(new ProfileImage("bomb", "image/png", bomb)));
+
+        assertThatThrownBy(() -> ThumbnailService.requireWithinPixelLimit(bomb))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.generate("bomb"))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(repository, never()).save(any(ProfileImage.class));
+    }
+
+    @Test
+    void unknownFormatsAreNotChecked() {
+        assertThatCode(() -> ThumbnailService.requireWithinPixelLimit("<svg/>".getBytes()))
+                .doesNotThrowAnyException();
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    // Reescreve largura/altura do IHDR (logo após a assinatura de 8 bytes) e o CRC do chunk
+    private static byte[] withDeclaredSize(byte[] png, int width, int height) {
+        byte[] patched = png.clone();
+        ByteBuffer buffer = ByteBuffer.wrap(patched);
+        buffer.putInt(16, width);
+        buffer.putInt(20, height);
+        CRC32 crc = new CRC32();
+        crc.update(patched, 12, 4 + 13);
+        buffer.putInt(29, (int) crc.getValue());
+        return patched;
+    }
+}
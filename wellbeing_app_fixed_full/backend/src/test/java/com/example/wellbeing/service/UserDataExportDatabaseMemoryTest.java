@@ -0,0 +1,147 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.PostgresIntegrationTest;
+import com.example.wellbeing.model.User;
+import com.example.wellbeing.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exportação de 1M de linhas de um PostgreSQL de verdade com -Xmx64m
+ * (execução "small-heap" do pom.xml). Diferente do UserDataExportMemoryTest,
+ * aqui passa o caminho que costuma quebrar: o driver só respeita o fetch size
+ * dentro de uma transação só leitura com autocommit desligado; fora dela
+ * carrega o resultado inteiro e estoura o heap. Sem transação do teste, para
+ * que writeExport abra a sua.
+ */
+@Tag("small-heap")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({UserDataExportService.class, UserDataExportDatabaseMemoryTest.Json.class})
+class UserDataExportDatabaseMemoryTest extends PostgresIntegrationTest {
+
+    private static final int DAILY_LOGS = 500_000;
+    private static final int MESSAGES = 500_000;
+    private static final int CHATS = 50;
+
+    static class Json {
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+    }
+
+    @Autowired
+    private UserDataExportService service;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Path zip;
+
+    @BeforeEach
+    void seed() throws Exception {
+        // Sobra de uma execução interrompida (ex.: OutOfMemoryError antes do @AfterEach)
+        userRepository.findByUsername("export-1m").ifPresent(leftover -> deleteData(leftover.getId()));
+        user = userRepository.save(new User("export-1m", "export-1m@example.com", "x", "Exporta", "PATIENT"));
+        jdbcTemplate.update("INSERT INTO chats (id, patient_id, doctor_id, title, updated_at) " +
+                "SELECT nextval('chats_seq'), ?, -n, 'Chat ' || n, now() FROM generate_series(1, ?) AS n",
+                user.getId(), CHATS);
+        jdbcTemplate.update("INSERT INTO daily_logs (id, user_id, pain_level, sleep_quality, mood, symptoms, " +
+                "triggers, diet_meals, physical_activity, medications, additional_notes, created_at, updated_at) " +
+                "SELECT nextval('daily_logs_seq'), ?, n % 11, n % 7, n % 5, repeat('s', 200), 'estresse', " +
+                "'salada', 'caminhada', repeat('m', 200), repeat('n', 200), " +
+                "TIMESTAMP '2020-01-01' + n * INTERVAL '1 minute', TIMESTAMP '2020-01-01' + n * INTERVAL '1 minute' " +
+                "FROM generate_series(1, ?) AS n", user.getId(), DAILY_LOGS);
+        jdbcTemplate.update("INSERT INTO messages (id, chat_id, sender_id, sender_role, content, created_at) " +
+                "SELECT nextval('messages_seq'), c.id, ?, 'PATIENT', repeat('x', 200) || n, " +
+                "TIMESTAMPTZ '2020-01-01 00:00:00+00' + n * INTERVAL '1 second' " +
+                "FROM generate_series(1, ?) AS n " +
+                "JOIN (SELECT id, ROW_NUMBER() OVER (ORDER BY id) - 1 AS k FROM chats WHERE patient_id = ?) c " +
+                "ON c.k = n % ?", user.getId(), MESSAGES, user.getId(), CHATS);
+        jdbcTemplate.execute("ANALYZE daily_logs");
+        jdbcTemplate.execute("ANALYZE messages");
+        zip = Files.createTempFile("export-1m", ".zip");
+    }
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        deleteData(user.getId());
+        Files.deleteIfExists(zip);
+    }
+
+    private void deleteData(Long userId) {
+        jdbcTemplate.update("DELETE FROM messages WHERE chat_id IN (SELECT id FROM chats WHERE patient_id = ?)", userId);
+        jdbcTemplate.update("DELETE FROM chats WHERE patient_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM daily_logs WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+    }
+
+    @Test
+    void exportsAMillionRowsFromTheDatabaseInConstantMemory() throws Exception {
+        long rowBytes = jdbcTemplate.queryForObject(
+                "SELECT (SELECT SUM(octet_length(symptoms) + octet_length(medications) + octet_length(additional_notes)) " +
+                "        FROM daily_logs WHERE user_id = ?) + " +
+                "       (SELECT SUM(octet_length(m.content)) FROM messages m JOIN chats c ON c.id = m.chat_id " +
+                "        WHERE c.patient_id = ?)", Long.class, user.getId(), user.getId());
+        long maxHeap = Runtime.getRuntime().maxMemory();
+        // Só prova alguma coisa se o resultado não caberia no heap
+        assertThat(rowBytes).isGreaterThan(2 * maxHeap);
+
+        try (OutputStream out = Files.newOutputStream(zip)) {
+            service.writeExport(user, out);
+        }
+
+        Map<String, Long> lines = countLines(zip);
+        System.out.printf("exportação do banco: %d linhas, %d MB de dados, %d MB de ZIP, heap máximo %d MB%n",
+                DAILY_LOGS + MESSAGES, rowBytes >> 20, Files.size(zip) >> 20, maxHeap >> 20);
+        // CSV com cabeçalho; NDJSON uma linha por mensagem
+        assertThat(lines).containsEntry("registros-diarios.csv", DAILY_LOGS + 1L)
+                .containsEntry("mensagens.ndjson", (long) MESSAGES);
+    }
+
+    // Lê o ZIP de volta em streaming, contando as linhas de cada arquivo
+    private static Map<String, Long> countLines(Path zip) throws Exception {
+        Map<String, Long> lines = new HashMap<>();
+        try (InputStream in = Files.newInputStream(zip); ZipInputStream zipIn = new ZipInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = zipIn.getNextEntry()) != null) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(zipIn, StandardCharsets.UTF_8));
+                long count = 0;
+                while (reader.readLine() != null) count++;
+                lines.put(entry.getName(), count);
+            }
+        }
+        return lines;
+    }
+}
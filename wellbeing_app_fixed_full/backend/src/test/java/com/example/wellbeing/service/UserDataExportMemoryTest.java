@@ -0,0 +1,94 @@
+package com.example.wellbeing.service;
+
+import com.example.wellbeing.model.User;
+import com.example.wellbeing.repository.DailyLogRepository;
+import com.example.wellbeing.repository.MessageRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A exportação tem que caber em memória constante: um histórico várias vezes
+ * maior que o heap passa inteiro por writeExport sem OutOfMemoryError. Roda
+ * na execução "small-heap" do surefire, com -Xmx64m (ver pom.xml).
+ */
+@Tag("small-heap")
+class UserDataExportMemoryTest {
+
+    private static final long USER_ID = 7L;
+    private static final int DAILY_LOGS = 500_000;
+    private static final int MESSAGES = 500_000;
+    private static final String NOTE = "x".repeat(200);
+
+    private final DailyLogRepository dailyLogRepository = mock(DailyLogRepository.class);
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final UserDataExportService service =
+            new UserDataExportService(dailyLogRepository, messageRepository, new ObjectMapper());
+
+    // Conta os bytes do ZIP e joga fora
+    private static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    @Test
+    void streamsHistoryLargerThanTheHeap() throws Exception {
+        AtomicLong rowBytes = new AtomicLong();
+        // Linhas geradas sob demanda, como o cursor do banco entrega
+        when(dailyLogRepository.streamExportRows(USER_ID)).thenReturn(dailyLogRows(rowBytes));
+        when(messageRepository.streamExportRows(USER_ID)).thenReturn(messageRows(rowBytes));
+
+        CountingOutputStream out = new CountingOutputStream();
+        service.writeExport(user(), out);
+
+        System.out.printf("exportação: %d MB de linhas, %d MB de ZIP, heap máximo %d MB%n",
+                rowBytes.get() >> 20, out.count >> 20, Runtime.getRuntime().maxMemory() >> 20);
+        assertThat(out.count).isPositive();
+        // Só prova alguma coisa se os dados não caberiam no heap
+        assertThat(rowBytes.get()).isGreaterThan(2 * Runtime.getRuntime().maxMemory());
+    }
+
+    private static Stream<Object[]> dailyLogRows(AtomicLong rowBytes) {
+        Timestamp createdAt = Timestamp.from(Instant.parse("2024-01-01T08:00:00Z"));
+        return LongStream.rangeClosed(1, DAILY_LOGS).mapToObj(id -> {
+            rowBytes.addAndGet(3 * NOTE.length());
+            return new Object[] {id, createdAt, createdAt, 3, 4, 5, NOTE, "estresse", "salada",
+                    "caminhada", NOTE, NOTE};
+        });
+    }
+
+    private static Stream<Object[]> messageRows(AtomicLong rowBytes) {
+        Timestamp createdAt = Timestamp.from(Instant.parse("2024-01-01T08:00:00Z"));
+        return LongStream.rangeClosed(1, MESSAGES).mapToObj(id -> {
+            String content = NOTE + id;
+            rowBytes.addAndGet(content.length());
+            return new Object[] {id, id % 50, USER_ID, "PATIENT", content, createdAt};
+        });
+    }
+
+    private static User user() {
+        User user = new User("ana", "ana@example.com", "x", "Ana", "PATIENT");
+        user.setId(USER_ID);
+        return user;
+    }
+}
@@ -0,0 +1,90 @@
+// Cliente STOMP mínimo sobre WebSocket nativo (o endpoint /ws não usa SockJS).
+// Só o necessário aqui: CONNECT com o JWT, SUBSCRIBE/UNSUBSCRIBE e entrega de MESSAGE em JSON.
+
+const WS_URL = import.meta.env.VITE_WS_URL || "ws://localhost:8080/ws";
+const RECONNECT_DELAY_MS = 5000;
+
+export function createStompClient(token) {
+  let socket = null;
+  let connected = false;
+  let closed = false;
+  let nextId = 0;
+  const subscriptions = new Map(); // id -> { destination, callback }
+
+  const sendFrame = (command, headers = {}, body = "") => {
+    if (!socket || socket.readyState !== WebSocket.OPEN) return;
+    const lines = [command, ...Object.entries(headers).map(([k, v]) => `${k}:${v}`)];
+    socket.send(`${lines.join("\n")}\n\n${body}\0`);
+  };
+
+  const sendSubscribe = (id, destination) => sendFrame("SUBSCRIBE", { id, destination });
+
+  const handleFrame = (raw) => {
+    const frame = raw.replace(/^\n+/, "");
+    if (!frame) return; // heart-beat
+
+    const headerEnd = frame.indexOf("\n\n");
+    const head = headerEnd >= 0 ? frame.substring(0, headerEnd) : frame;
+    const body = headerEnd >= 0 ? frame.substring(headerEnd + 2) : "";
+    const [command, ...headerLines] = head.split("\n");
+    const headers = {};
+    headerLines.forEach((line) => {
+      const idx = line.indexOf(":");
+      if (idx > 0 && !(line.substring(0, idx) in headers)) {
+        headers[line.substring(0, idx)] = line.substring(idx + 1);
+      }
+    });
+
+    if (command === "CONNECTED") {
+      connected = true;
+      subscriptions.forEach((sub, id) => sendSubscribe(id, sub.destination));
+    } else if (command === "MESSAGE") {
+      const sub = subscriptions.get(headers.subscription);
+      if (!sub) return;
+      try {
+        sub.callback(body ? JSON.parse(body) : null);
+      } catch (err) {
+        console.error("Erro ao processar mensagem STOMP", err);
+      }
+    } else if (command === "ERROR") {
+      console.error("Erro STOMP:", headers.message || body);
+    }
+  };
+
+  const connect = () => {
+    socket = new WebSocket(WS_URL);
+    socket.onopen = () => {
+      sendFrame("CONNECT", {
+        "accept-version": "1.2",
+        "heart-beat": "0,0",
+        Authorization: `Bearer ${token}`,
+      });
+    };
+    socket.onmessage = (event) => {
+      String(event.data).split("\0").forEach(handleFrame);
+    };
+    socket.onclose = () => {
+      connected = false;
+      if (!closed) setTimeout(connect, RECONNECT_DELAY_MS);
+    };
+  };
+
+  connect();
+
+  return {
+    subscribe(destination, callback) {
+      const id = `sub-${nextId++}`;
+      subscriptions.set(id, { destination, callback });
+      if (connected) sendSubscribe(id, destination);
+      return () => {
+        subscriptions.delete(id);
+        if (connected) sendFrame("UNSUBSCRIBE", { id });
+      };
+    },
+    disconnect() {
+      closed = true;
+      if (connected) sendFrame("DISCONNECT");
+      if (socket) socket.close();
+    },
+  };
+}
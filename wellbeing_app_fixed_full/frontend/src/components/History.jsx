@@ -6,27 +6,26 @@ import { CalendarDaysIcon, ArrowPathIcon } from "@heroicons/react/24/outline";
 export default function History() {
   const [entries, setEntries] = useState([]);
   const [loading, setLoading] = useState(true);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
+
+  // ✅ Backend devolve só os registros do usuário, mais recentes primeiro, em páginas
+  const fetchPage = async (before) => {
+    const token = localStorage.getItem("token");
+    const res = await axios.get("http://localhost:8080/api/daily", {
+      headers: { Authorization: `Bearer ${token}` },
+      params: before ? { before } : {},
+    });
+    console.log("📋 Registros recebidos:", res.data);
+    return res.data;
+  };
 
   useEffect(() => {
     const fetchEntries = async () => {
       try {
-        const token = localStorage.getItem("token");
-        const userId = parseInt(localStorage.getItem("userId"));
-        
-        console.log("🔍 Buscando histórico para usuário:", userId);
-        
-        // ✅ CORREÇÃO: Buscar todos os registros
-        const res = await axios.get("http://localhost:8080/api/daily", {
-          headers: { Authorization: `Bearer ${token}` },
-        });
-        
-        console.log("📋 Todos os registros recebidos:", res.data);
-        
-        // ✅ CORREÇÃO: Mostrar todos os registros (sem filtro por usuário temporariamente)
-        const allEntries = res.data;
-        console.log("👤 Registros para exibir:", allEntries);
-        
-        setEntries(allEntries.reverse());
+        const page = await fetchPage(null);
+        setEntries(page.items || []);
+        setNextCursor(page.hasMore ? page.nextCursor : null);
       } catch (err) {
         console.error("❌ Erro ao buscar registros:", err);
       } finally {
@@ -37,6 +36,20 @@ export default function History() {
     fetchEntries();
   }, []);
 
+  const loadMore = async () => {
+    if (!nextCursor || loadingMore) return;
+    setLoadingMore(true);
+    try {
+      const page = await fetchPage(nextCursor);
+      setEntries((prev) => [...prev, ...(page.items || [])]);
+      setNextCursor(page.hasMore ? page.nextCursor : null);
+    } catch (err) {
+      console.error("❌ Erro ao carregar mais registros:", err);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   return (
     <div className="min-h-screen bg-[radial-gradient(ellipse_at_top,_var(--tw-gradient-stops))] from-[#1F1F33] via-[#2A2A44] to-[#363645] py-10 flex flex-col items-center">
       <motion.div
@@ -152,6 +165,16 @@ export default function History() {
                 )}
               </motion.div>
             ))}
+
+            {nextCursor && (
+              <button
+                onClick={loadMore}
+                disabled={loadingMore}
+                className="mx-auto mt-2 text-sm text-[#A5A5D6] hover:text-[#EAEAFB] transition-colors disabled:opacity-50"
+              >
+                {loadingMore ? "Carregando..." : "Carregar registros anteriores"}
+              </button>
+            )}
           </motion.div>
         )}
 
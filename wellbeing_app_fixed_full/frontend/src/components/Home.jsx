@@ -16,20 +16,14 @@ export default function Home() {
         
         console.log("🔍 Buscando registros para usuário:", userId);
         
-        const res = await axios.get(`http://localhost:8080/api/daily`, {
+        // ✅ Backend já devolve só o último registro do usuário autenticado (204 se não houver)
+        const res = await axios.get(`http://localhost:8080/api/daily/latest`, {
           headers: { Authorization: `Bearer ${token}` },
         });
         
-        console.log("📋 Registros recebidos:", res.data);
-        
-        const allEntries = res.data;
-        
-        if (allEntries.length > 0) {
-          const latestEntry = allEntries.sort((a, b) => 
-            new Date(b.createdAt) - new Date(a.createdAt)
-          )[0];
-          console.log("✅ Último registro:", latestEntry);
-          setLatest(latestEntry);
+        if (res.status === 200 && res.data) {
+          console.log("✅ Último registro:", res.data);
+          setLatest(res.data);
         } else {
           console.log("ℹ️ Nenhum registro encontrado");
         }
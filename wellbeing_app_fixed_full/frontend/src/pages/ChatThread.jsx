@@ -3,6 +3,7 @@ import axios from "axios";
 import { motion, AnimatePresence } from "framer-motion";
 import { useParams } from "react-router-dom";
 import { PaperAirplaneIcon } from "@heroicons/react/24/outline";
+import { createStompClient } from "../api/stompClient";
 
 export default function ChatThread() {
   const { id } = useParams();
@@ -13,6 +14,11 @@ export default function ChatThread() {
   const [loading, setLoading] = useState(true);
   const [isOnline, setIsOnline] = useState(false);
   const [statusLoading, setStatusLoading] = useState(true);
+  const [prevCursor, setPrevCursor] = useState(null);
+  const [loadingOlder, setLoadingOlder] = useState(false);
+  const skipScrollRef = useRef(false);
+  // Envio ainda sem confirmação: o reenvio usa o mesmo clientMessageId e não duplica
+  const pendingSendRef = useRef(null);
   const messagesEndRef = useRef();
   const messagesContainerRef = useRef();
   
@@ -29,7 +35,21 @@ export default function ChatThread() {
     updateOwnStatus();
   }, [id]);
 
-  // ✅ ATUALIZADO: Buscar status online do backend
+  // ✅ Presença por push: o servidor avisa só quando o outro usuário entra ou sai
+  const otherUserId = chatInfo?.otherUserId;
+  useEffect(() => {
+    if (!otherUserId) return;
+    const client = createStompClient(localStorage.getItem("token"));
+    const unsubscribe = client.subscribe(`/topic/presence/${otherUserId}`, (event) => {
+      if (event) setIsOnline(event.online);
+    });
+    return () => {
+      unsubscribe();
+      client.disconnect();
+    };
+  }, [otherUserId]);
+
+  // ✅ ATUALIZADO: Buscar status online do backend (estado inicial; mudanças chegam por push)
   const fetchUserStatus = async (userId) => {
     try {
       const token = localStorage.getItem("token");
@@ -73,7 +93,9 @@ export default function ChatThread() {
         headers: { Authorization: `Bearer ${token}` }
       });
       
-      setMessages(messagesRes.data || []);
+      // ✅ Resposta paginada: { messages, prevCursor, nextCursor, ... }
+      setMessages(messagesRes.data?.messages || []);
+      setPrevCursor(messagesRes.data?.prevCursor ?? null);
       
       // ✅ BUSCAR STATUS ONLINE do outro usuário
       if (infoRes.data.otherUserId) {
@@ -89,7 +111,37 @@ export default function ChatThread() {
     }
   };
 
+  // ✅ NOVO: Carregar página de mensagens mais antigas (cursor "before")
+  const loadOlderMessages = async () => {
+    if (!prevCursor || loadingOlder) return;
+    setLoadingOlder(true);
+    try {
+      const token = localStorage.getItem("token");
+      const res = await axios.get(`http://localhost:8080/api/chats/${id}/messages`, {
+        params: { before: prevCursor },
+        headers: { Authorization: `Bearer ${token}` }
+      });
+      skipScrollRef.current = true;
+      setMessages(prev => [...(res.data?.messages || []), ...prev]);
+      setPrevCursor(res.data?.prevCursor ?? null);
+    } catch (err) {
+      console.error("Erro ao carregar mensagens anteriores", err);
+    } finally {
+      setLoadingOlder(false);
+    }
+  };
+
+  const handleMessagesScroll = (e) => {
+    if (e.currentTarget.scrollTop === 0) {
+      loadOlderMessages();
+    }
+  };
+
   useEffect(() => {
+    if (skipScrollRef.current) {
+      skipScrollRef.current = false;
+      return;
+    }
     scrollToBottom();
   }, [messages]);
 
@@ -108,11 +160,27 @@ export default function ChatThread() {
       // Atualizar status como online ao enviar mensagem
       await updateOwnStatus();
       
-      const res = await axios.post(`http://localhost:8080/api/chats/${id}/message`, 
-        { content: text }, 
+      const pending = pendingSendRef.current?.content === text
+        ? pendingSendRef.current
+        : { content: text, clientMessageId: crypto.randomUUID() };
+      pendingSendRef.current = pending;
+
+      const post = () => axios.post(`http://localhost:8080/api/chats/${id}/message`,
+        pending,
         { headers: { Authorization: `Bearer ${token}` } }
       );
-      
+      let res = await post();
+      // 202: gravação ainda pendente no servidor; o reenvio confirma sem duplicar
+      if (res.status === 202) {
+        await new Promise(resolve => setTimeout(resolve, 1000));
+        res = await post();
+      }
+      if (res.status === 202) {
+        alert("Mensagem ainda sendo enviada. Tente novamente em instantes.");
+        return;
+      }
+
+      pendingSendRef.current = null;
       setMessages(prev => [...prev, res.data]);
       setText("");
     } catch (err) {
@@ -257,8 +325,20 @@ export default function ChatThread() {
           {/* Área de Mensagens */}
           <div 
             ref={messagesContainerRef}
+            onScroll={handleMessagesScroll}
             className="flex-1 overflow-y-auto p-4 space-y-4 bg-[#1F1F33] rounded-xl mb-4 custom-scrollbar"
           >
+            {prevCursor && (
+              <div className="text-center">
+                <button
+                  onClick={loadOlderMessages}
+                  disabled={loadingOlder}
+                  className="text-xs text-[#A5A5D6] hover:text-[#EAEAFB] disabled:opacity-50"
+                >
+                  {loadingOlder ? "Carregando..." : "Carregar mensagens anteriores"}
+                </button>
+              </div>
+            )}
             <AnimatePresence>
               {messages.length === 0 ? (
                 <motion.div
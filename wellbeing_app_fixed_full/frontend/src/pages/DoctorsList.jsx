@@ -13,19 +13,33 @@ export default function DoctorsList() {
   const [specialties, setSpecialties] = useState([]);
   const [isSearchFocused, setIsSearchFocused] = useState(false);
   const [isSelectFocused, setIsSelectFocused] = useState(false);
+  const [page, setPage] = useState(0);
+  const [hasNext, setHasNext] = useState(false);
 
   useEffect(() => {
-    fetchDoctors();
     fetchSpecialties();
   }, []);
 
-  const fetchDoctors = async () => {
+  // ✅ Busca no servidor (filtros + paginação); espera o usuário parar de digitar
+  useEffect(() => {
+    const timeout = setTimeout(() => fetchDoctors(0), 300);
+    return () => clearTimeout(timeout);
+  }, [searchTerm, selectedSpecialty]);
+
+  const fetchDoctors = async (pageToLoad) => {
     try {
       const token = localStorage.getItem("token");
-      const res = await axios.get("http://localhost:8080/api/users/doctors", {
-        headers: { Authorization: `Bearer ${token}` }
+      const params = { page: pageToLoad };
+      if (searchTerm.trim()) params.q = searchTerm.trim();
+      if (selectedSpecialty) params.specialization = selectedSpecialty;
+
+      const res = await axios.get("http://localhost:8080/api/users/doctors/search", {
+        headers: { Authorization: `Bearer ${token}` },
+        params
       });
-      setDoctors(res.data);
+      setDoctors(prev => pageToLoad === 0 ? res.data.items : [...prev, ...res.data.items]);
+      setPage(pageToLoad);
+      setHasNext(res.data.hasNext);
     } catch (err) {
       console.error("Erro ao buscar doutores", err);
     } finally {
@@ -52,7 +66,7 @@ export default function DoctorsList() {
     if (doctor.profilePicture) {
       return (
         <img 
-          src={doctor.profilePicture} 
+          src={doctor.profilePictureThumbnail || doctor.profilePicture} 
           alt={doctor.fullName}
           className={`${size} rounded-full object-cover border border-[#34344A] flex-shrink-0`}
           onError={(e) => {
@@ -77,10 +91,8 @@ export default function DoctorsList() {
     );
   };
 
-  const filteredDoctors = doctors.filter(doctor =>
-    doctor.fullName?.toLowerCase().includes(searchTerm.toLowerCase()) &&
-    (selectedSpecialty === "" || doctor.especializacao === selectedSpecialty)
-  );
+  // Filtros já aplicados pelo servidor
+  const filteredDoctors = doctors;
 
   const handleDoctorClick = (doctorId) => {
     navigate(`/doctors/${doctorId}`);
@@ -293,6 +305,19 @@ export default function DoctorsList() {
           </AnimatePresence>
         </motion.div>
 
+        {hasNext && (
+          <div className="flex justify-center mt-8">
+            <motion.button
+              onClick={() => fetchDoctors(page + 1)}
+              whileHover={{ scale: 1.05 }}
+              whileTap={{ scale: 0.95 }}
+              className="bg-[#6666C4] text-white px-6 py-3 rounded-xl font-semibold shadow-lg"
+            >
+              Carregar mais
+            </motion.button>
+          </div>
+        )}
+
         {filteredDoctors.length === 0 && (
           <motion.div
             initial={{ opacity: 0, scale: 0.8 }}
@@ -125,27 +125,69 @@ export default function SettingsPage() {
     }
   };
 
-  // Exportar dados
+  // Exportar dados: o servidor gera o arquivo em segundo plano e o download
+  // é feito em partes (Range), retomando do ponto em que parou se cair
+  const EXPORT_POLL_MS = 2000;
+  const EXPORT_CHUNK_BYTES = 4 * 1024 * 1024;
+  const EXPORT_MAX_RETRIES = 3;
+
+  const downloadInChunks = async (url, size, token) => {
+    const parts = [];
+    let offset = 0;
+    let retries = 0;
+    while (offset < size) {
+      const end = Math.min(offset + EXPORT_CHUNK_BYTES, size) - 1;
+      try {
+        const res = await fetch(url, {
+          headers: { "Authorization": `Bearer ${token}`, "Range": `bytes=${offset}-${end}` }
+        });
+        if (!res.ok) throw new Error(`HTTP ${res.status}`);
+        const part = await res.blob();
+        parts.push(part);
+        offset += part.size;
+        retries = 0;
+      } catch (error) {
+        if (++retries > EXPORT_MAX_RETRIES) throw error;
+      }
+    }
+    return new Blob(parts, { type: "application/zip" });
+  };
+
   const handleExportData = async () => {
     try {
       const token = localStorage.getItem("authToken");
-      const response = await fetch("http://localhost:8080/api/users/export-data", {
-        headers: {
-          "Authorization": `Bearer ${token}`
-        }
-      });
+      const headers = { "Authorization": `Bearer ${token}` };
+      const base = "http://localhost:8080/api/users/export-jobs";
 
-      if (response.ok) {
-        const blob = await response.blob();
-        const url = window.URL.createObjectURL(blob);
-        const a = document.createElement("a");
-        a.href = url;
-        a.download = "serenecare-dados.zip";
-        document.body.appendChild(a);
-        a.click();
-        window.URL.revokeObjectURL(url);
-        document.body.removeChild(a);
+      const created = await fetch(base, { method: "POST", headers });
+      if (!created.ok) {
+        setMessage(await created.text() || "Erro ao exportar dados");
+        return;
       }
+      let job = await created.json();
+      setMessage("Preparando seus dados para download...");
+
+      while (job.status === "QUEUED" || job.status === "RUNNING") {
+        await new Promise((resolve) => setTimeout(resolve, EXPORT_POLL_MS));
+        const res = await fetch(`${base}/${job.id}`, { headers });
+        if (!res.ok) throw new Error(`HTTP ${res.status}`);
+        job = await res.json();
+      }
+      if (job.status !== "READY") {
+        setMessage("Erro ao exportar dados");
+        return;
+      }
+
+      const blob = await downloadInChunks(`http://localhost:8080${job.downloadUrl}`, job.sizeBytes, token);
+      const url = window.URL.createObjectURL(blob);
+      const a = document.createElement("a");
+      a.href = url;
+      a.download = "serenecare-dados.zip";
+      document.body.appendChild(a);
+      a.click();
+      window.URL.revokeObjectURL(url);
+      document.body.removeChild(a);
+      setMessage("");
     } catch (error) {
       console.error("Erro:", error);
       setMessage("Erro ao exportar dados");